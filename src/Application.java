@@ -6,13 +6,21 @@ import cfg.CFGBuilder;
 import fin.Fin;
 import lalr.ItemCollection;
 import lr.LR;
+import server.ParseServer;
 import slr.SLR;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 public class Application {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		// 服务模式：java Application --server [文法缓存容量]
+		if (args.length > 0 && args[0].equals("--server")) {
+			ParseServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 
 
 		Fin fin = Fin.getInstance();
@@ -54,8 +62,10 @@ public class Application {
 //		time = CalculationTime.call(lr::execute);
 //		System.out.println("LR identify -> " + time + "ms");
 
+		// --by-core：按核心哈希合并同心项集，结果与construct()相同
 		lalr.ItemCollection collection = new lalr.ItemCollection(itemCollection);
-		collection.construct();
+		if (Arrays.asList(args).contains("--by-core")) collection.constructByCore();
+		else collection.construct();
 		collection.resetId();
 		collection.printItemCollection();
 
@@ -1,18 +1,33 @@
 package algorithm;
 
 import cfg.CFG;
+import cfg.SymbolTable;
+import cfg.production.CompactProduction;
 import cfg.production.Production;
 import cfg.production.ProductionGroup;
 import cfg.production.SubItem;
-import cfg.production.SubItemType;
 import fout.Fout;
 import fout.attr.ColumnAttr;
 
 import java.util.*;
 
+/**
+ * First集
+ *
+ * 每个非终结符的First集以终结符编号的位集表示，能否推导出ε单独记录在nullable中，
+ * 对所有产生式反复迭代直到不再变化（不动点），所以成环的文法也不会栈溢出。
+ * getFirstSet()与getProductionFirstSet()是按字符串的适配视图。
+ */
 public class FirstSet {
 
 	private CFG cfg;
+	private SymbolTable symbolTable;
+
+	// 非终结符编号 -> First集（终结符编号的位集）
+	private BitSet[] first;
+	// 能推导出ε的非终结符编号
+	private BitSet nullable;
+
 	// nonTerminal -> {terminal Symbol}
 	private Map<String, Set<String>> firstSet;
 
@@ -22,120 +37,143 @@ public class FirstSet {
 
 	public FirstSet(CFG cfg) {
 		this.cfg = cfg;
+		this.symbolTable = cfg.getSymbolTable();
 		firstSet = new LinkedHashMap<>();
 	}
 
 	public Map<String, Set<String>> getFirstSet() {
 		if (isUpdated) return firstSet;
 
-		Map<String, Set<String>> backup = new LinkedHashMap<>();
+		calculationFirstSet();
+		isUpdated = true;
+
+		firstSet.clear();
 		for (String nonTerminal : cfg.getNonTerminals()) {
-			Set<String> rec = calculationFirstSet(backup, nonTerminal);
-			if (rec != null) {
-				firstSet.put(nonTerminal, rec);
-			}
+			int id = symbolTable.getNonTerminalId(nonTerminal);
+			if (cfg.getProductionGroup(id) == null) continue;
+			firstSet.put(nonTerminal, symbolTable.toTerminalNames(getFirst(id)));
 		}
 
-		for (var item : firstSet.entrySet()) {
-			item.getValue().remove("ε");
-		}
+		productionFirstSet.clear();
+		for (ProductionGroup group : cfg.getProductionGroupMap().values()) {
+			for (Production production : group.getProductions()) {
+				BitSet itemFirst = new BitSet();
+				boolean itemNullable = calculationSequence(production.getSubItems(), itemFirst);
 
-		isUpdated = true;
+				Set<String> itemFirstSet = symbolTable.toTerminalNames(itemFirst);
+				if (itemNullable) itemFirstSet.add(SymbolTable.EpsilonSymbol);
+				productionFirstSet.put(production.getProductionStr(), itemFirstSet);
+			}
+		}
 		return this.firstSet;
 	}
 
 	/**
-	 *
-	 * @param nonTerminal
-	 * @return
+	 * 不动点迭代：对每个产生式 A -> X1 X2 ... Xn，
+	 * 将First(X1)加入First(A)，如果X1能推导出ε，继续加入First(X2)，以此类推；
+	 * 如果X1 ... Xn都能推导出ε，则A能推导出ε。
+	 * 直到一轮迭代中没有任何集合发生变化。
 	 */
-	private Set<String> calculationFirstSet(Map<String, Set<String>> backup, String nonTerminal) {
-		ProductionGroup productionGroup = cfg.getProductionGroupMap().get(nonTerminal);
-		if (productionGroup == null) return null;
-
-		Set<String> result = new LinkedHashSet<>();
-		for (Production item : productionGroup.getProductions()) {
-			Set<String> itemFirstSet = new HashSet<>();
-
-			String firstSubItem = item.getSubItems().getFirst().getValue();
-			if (cfg.getNonTerminals().contains(firstSubItem)) {
-
-				ListIterator<SubItem> iterator = item.getSubItems().listIterator(0);
-				while (iterator.hasNext()) {
-					SubItem subItem = iterator.next();
-
-					// 如果是终结符，添加到result中，并且跳出循环
-					if (subItem.getType() == SubItemType.terminal) {
-						// 终结符分两种情况，一种是有ε，一种是没有ε
-						if (subItem.getValue().equals("ε")) {
-							subItem = iterator.next();
-						} else {
-							result.add(subItem.getValue());
-							itemFirstSet.add(subItem.getValue());
-						}
-						break;
+	private void calculationFirstSet() {
+		// 文法可能被修改过，先为新增的符号分配编号
+		cfg.internSymbols();
+
+		int count = symbolTable.getNonTerminalCount();
+		first = new BitSet[count];
+		for (int i = 0; i < count; i++) first[i] = new BitSet();
+		nullable = new BitSet(count);
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			for (ProductionGroup group : cfg.getProductionGroupMap().values()) {
+				int head = group.getHeadId();
+				BitSet headFirst = first[head];
+
+				for (Production production : group.getProductions()) {
+					int before = headFirst.cardinality();
+					boolean bodyNullable = calculationSequence(production.getSubItems(), headFirst);
+
+					if (headFirst.cardinality() != before) changed = true;
+					if (bodyNullable && !nullable.get(head)) {
+						nullable.set(head);
+						changed = true;
 					}
+				}
+			}
+		}
+	}
 
-					Set<String> rec = backup.get(subItem.getValue());
-
-					// backup中没有, 计算一遍
-					if (rec == null) {
-						rec = calculationFirstSet(backup, subItem.getValue());
-					}
+	/**
+	 * 将子项序列的First集加入dest
+	 * @return 子项序列能否推导出ε
+	 */
+	private boolean calculationSequence(List<SubItem> subItems, BitSet dest) {
+		for (SubItem subItem : subItems) {
+			if (!calculationSymbol(subItem.getSymbolId(), dest)) return false;
+		}
+		return true;
+	}
 
-					assert rec != null;
+	private boolean calculationSymbol(int symbol, BitSet dest) {
+		if (symbol == SymbolTable.EPSILON) return true;
 
-					backup.put(subItem.getValue(), rec);
-					result.addAll(rec);
-					itemFirstSet.addAll(rec);
+		if (SymbolTable.isTerminal(symbol)) {
+			dest.set(symbol);
+			return false;
+		}
 
-					if (!rec.contains("ε")) {
-						// 如果当前子项不能推导出epsilon, 则当前项已经结束
-						result.addAll(rec);
-						itemFirstSet.addAll(rec);
-						break;
-					}
+		int id = SymbolTable.decodeNonTerminal(symbol);
+		if (id >= first.length) return false;
+		dest.or(first[id]);
+		return nullable.get(id);
+	}
 
-				}
-			} else {
-				result.add(firstSubItem);
-				itemFirstSet.add(firstSubItem);
-			}
+	/**
+	 * 将一个符号的First集加入dest
+	 * @param symbol 符号编码
+	 * @param dest 终结符编号位集
+	 * @return 该符号能否推导出ε
+	 */
+	public boolean addFirst(int symbol, BitSet dest) {
+		if (!isUpdated) getFirstSet();
+		return calculationSymbol(symbol, dest);
+	}
 
-			productionFirstSet.put(item.getProductionStr(), itemFirstSet);
+	/**
+	 * 将产生式体从from开始的后缀的First集加入dest
+	 * @param production 产生式
+	 * @param from 开始位置
+	 * @param dest 终结符编号位集
+	 * @return 该后缀能否推导出ε（空后缀能推导出ε）
+	 */
+	public boolean addFirst(CompactProduction production, int from, BitSet dest) {
+		if (!isUpdated) getFirstSet();
+		for (int i = from; i < production.length(); i++) {
+			if (!calculationSymbol(production.getSymbol(i), dest)) return false;
 		}
-		return result;
+		return true;
 	}
 
 	/**
-	 * 检查nonTerminal能否经过一步或多步推出ε
-	 *
-	 * Todo 如果两个产生式成环，可能会栈溢出
-	 * @param nonTerminal
-	 * @return
+	 * @param nonTerminalId 非终结符编号
+	 * @return First集（终结符编号位集），不要修改返回值
 	 */
-	private boolean canDerivationEpsilon(String nonTerminal) {
-		ProductionGroup productionGroup = cfg.getProductionGroupMap().get(nonTerminal);
-		if (productionGroup == null) return false;
-
-		boolean result = false;
-
-		for (Production item : productionGroup.getProductions()) {
-			String firstSubItem = item.getSubItems().getFirst().getValue();
-			if (cfg.getNonTerminals().contains(firstSubItem)) {
-				// 是一个非终结符, 则递归检查该终结符能否推导出
-				boolean rec = canDerivationEpsilon(firstSubItem);
-				if (rec) result = true;
-			} else if (firstSubItem.equals("ε")) {
-				// 如果是一个ε
-				result = true;
-			}
-
-			// 只要有一次能推导出，则返回true
-			if (result) return true;
-		}
+	public BitSet getFirst(int nonTerminalId) {
+		if (!isUpdated) getFirstSet();
+		if (nonTerminalId >= first.length) return new BitSet();
+		return first[nonTerminalId];
+	}
 
-		return false;
+	/**
+	 * @param nonTerminalId 非终结符编号
+	 * @return 该非终结符能否经过一步或多步推出ε
+	 */
+	public boolean isNullable(int nonTerminalId) {
+		if (!isUpdated) getFirstSet();
+		if (nonTerminalId >= first.length) return false;
+		return nullable.get(nonTerminalId);
 	}
 
 	public void setUpdated(boolean updated) {
@@ -143,6 +181,7 @@ public class FirstSet {
 	}
 
 	public Map<String, Set<String>> getProductionFirstSet() {
+		if (!isUpdated) getFirstSet();
 		return productionFirstSet;
 	}
 
@@ -152,4 +191,3 @@ public class FirstSet {
 		fout.fout();
 	}
 }
-
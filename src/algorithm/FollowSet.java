@@ -1,251 +1,175 @@
 package algorithm;
 
 import cfg.CFG;
+import cfg.SymbolTable;
 import cfg.production.Production;
 import cfg.production.ProductionGroup;
 import cfg.production.SubItem;
-import cfg.production.SubItemType;
 import fout.Fout;
 import fout.attr.ColumnAttr;
 
 import java.util.*;
 
+/**
+ * Follow集
+ *
+ * 对每个产生式 A -> α B β：
+ *  First(β) 直接加入 Follow(B)
+ *  如果β能推导出ε，则 Follow(B) 包含 Follow(A)，记为关系 B includes A
+ *
+ * 然后按DeRemer–Pennello的digraph算法沿includes关系遍历，
+ * 同一个强连通分量中的非终结符共享同一个Follow集，每条边只合并一次位集，
+ * 所以对任意长度的环都是正确的，并且与文法规模成线性关系。
+ */
 public class FollowSet {
 
-	private static final String InputRightEndSym = "$";
+	private static final String InputRightEndSym = SymbolTable.EndSymbol;
 
 	private CFG cfg;
+	private SymbolTable symbolTable;
+	private FirstSet firstSet;
+
 	// nonTerminal -> {terminal Symbol}
 	private Map<String, Set<String>> followSet;
-	private Map<String, Set<String>> firstSet;
+	// 非终结符编号 -> Follow集（终结符编号的位集）
+	private BitSet[] follow;
 
 	private boolean isUpdated = false;
 
 	public FollowSet(CFG cfg, FirstSet firstSet) {
 		this.cfg = cfg;
+		this.symbolTable = cfg.getSymbolTable();
+		this.firstSet = firstSet;
 		followSet = new LinkedHashMap<>();
-		this.firstSet = firstSet.getFirstSet();
-
-		// 添加输入右端结束标记
-		Set<String> startSymSet = new HashSet<>();
-		startSymSet.add(InputRightEndSym);
-		followSet.put(cfg.getStartSymbol(), startSymSet);
+		firstSet.getFirstSet();
 	}
 
 	public Map<String, Set<String>> getFollowSet() {
 		if (isUpdated) return followSet;
 
-		Map<String, DependencyTree> dependencyTrees = new HashMap<>();
-		DependencyTree startSymDepTree = registerDependencyTree(dependencyTrees, cfg.getStartSymbol());
-		startSymDepTree.addFollowSym(InputRightEndSym);
+		calculationFollowSet();
 
+		followSet.clear();
 		for (String nonTerminal : cfg.getNonTerminals()) {
-			calculationFollowSet(dependencyTrees, nonTerminal);
+			int id = symbolTable.getNonTerminalId(nonTerminal);
+			followSet.put(nonTerminal, symbolTable.toTerminalNames(follow[id]));
 		}
 
 		isUpdated = true;
 		return this.followSet;
 	}
 
-	private void calculationFollowSet(Map<String, DependencyTree> dependencyTrees, String nonTerminal) {
-		ProductionGroup productionGroup = cfg.getProductionGroupMap().get(nonTerminal);
+	private void calculationFollowSet() {
+		// 文法可能被修改过，先为新增的符号分配编号
+		cfg.internSymbols();
 
-		DependencyTree nonTerDepTree = dependencyTrees.get(nonTerminal);
-		if (nonTerDepTree == null) {
-			nonTerDepTree = new DependencyTree(nonTerminal, dependencyTrees);
-			dependencyTrees.put(nonTerminal, nonTerDepTree);
+		int count = symbolTable.getNonTerminalCount();
+		BitSet[] direct = new BitSet[count];
+		List<List<Integer>> includes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			direct[i] = new BitSet();
+			includes.add(new ArrayList<>());
 		}
 
-		// 1. 外层循环控制一个产生式体
-		for (Production item : productionGroup.getProductions()) {
-			ListIterator<SubItem> iterator = item.getSubItems().listIterator(0);
+		// 添加输入右端结束标记
+		direct[cfg.getStartSymbolId()].set(SymbolTable.END);
 
-			// 2. 内层循环遍历当前产生式体的子项
-			while (iterator.hasNext()) {
-				ListIterator<SubItem> it = item.getSubItems().listIterator(iterator.nextIndex());
-				recursiveQuery(dependencyTrees, nonTerminal, it);
-				iterator.next();
+		for (ProductionGroup group : cfg.getProductionGroupMap().values()) {
+			int head = group.getHeadId();
+			for (Production production : group.getProductions()) {
+				calculationProduction(head, production, direct, includes);
 			}
 		}
 
-		// 到这里，已经检查完了
-		dependencyTrees.forEach((key, value) -> followSet.put(key, value.curFollowSet));
+		follow = digraph(direct, includes);
 	}
 
-	private void recursiveQuery(Map<String, DependencyTree> dependencyTrees, String nonTerminal, ListIterator<SubItem> iterator) {
-		// 如果迭代器没有下一个选项，退出递归
-		if (!iterator.hasNext()) return ;
-
-		SubItem subItem = iterator.next();
-
-		// 如果当前子项是非终结符
-		if (subItem.getType() == SubItemType.nonTerminal) {
-
-			// 获取当前子项的follow集
-			DependencyTree curSubItemDepTree = registerDependencyTree(dependencyTrees, subItem.getValue());
-			DependencyTree nonTerDepTree = registerDependencyTree(dependencyTrees, nonTerminal);
-
-			/*
-			 * 有几种情况：
-			 * 1. 下一个子项的first集不包含epsilon    2. 下一个子项的first集包含epsilon
-			 * 3. 下一个子项是终结符 4. 没有下一个项了，当前子项是末尾
-			 */
-
-			if (!iterator.hasNext()) {
-				// 当前子项是末尾, 则将nonTerminal的follow集加入到当前子项的Follow集，
-				curSubItemDepTree.addFollowSym(nonTerDepTree.curFollowSet);
-
-				// 并把当前子项添加到nonTerminal的依赖项中
-				nonTerDepTree.addDependencyNonTerminal(subItem.getValue());
-			} else {
-
-				boolean exit_abnormally = false;
-				while (iterator.hasNext()) {
-
-					// 判断下一子项是非终结符还是终结符
-					SubItem nextSubItem = iterator.next();
-					if (nextSubItem.getType() == SubItemType.terminal) {
-						// 如果是终结符，则将该终结符加入到Follow集
-						curSubItemDepTree.addFollowSym(nextSubItem.getValue());
-						exit_abnormally = true;
-						break;
-					} else {
-						// 如果是非终结符, 获取该非终结符的first集，然后判断是否有epsilon
-						Set<String> nextSubItemFirst = firstSet.get(nextSubItem.getValue());
-						assert nextSubItemFirst != null;
-
-						if (nextSubItemFirst.contains("ε")) {
-							// 先去掉集合中的epsilon，然后加入到当前子项的follow集
-							nextSubItemFirst.remove("ε");
-							curSubItemDepTree.addFollowSym(nextSubItemFirst);
-							// 然后再检查之后的每项
-						} else {
-							curSubItemDepTree.addFollowSym(nextSubItemFirst);
-							exit_abnormally = true;
-							break;
-						}
-					}
-				}
-
-				if (exit_abnormally) return ;
+	/**
+	 * 从右往左扫描产生式体，suffix为当前位置之后的子项序列的First集，
+	 * suffixNullable为该序列能否推导出ε
+	 */
+	private void calculationProduction(int head, Production production, BitSet[] direct, List<List<Integer>> includes) {
+		List<SubItem> subItems = production.getSubItems();
+
+		BitSet suffix = new BitSet();
+		boolean suffixNullable = true;
+
+		ListIterator<SubItem> iterator = subItems.listIterator(subItems.size());
+		while (iterator.hasPrevious()) {
+			int symbol = iterator.previous().getSymbolId();
+			if (symbol == SymbolTable.EPSILON) continue;
+
+			if (SymbolTable.isTerminal(symbol)) {
+				suffix.clear();
+				suffix.set(symbol);
+				suffixNullable = false;
+				continue;
+			}
 
-				// 当前子项是末尾, 则将nonTerminal的follow集加入到当前子项的Follow集，
-				curSubItemDepTree.addFollowSym(nonTerDepTree.curFollowSet);
-				// 并把当前子项添加到nonTerminal的依赖项中
-				nonTerDepTree.addDependencyNonTerminal(subItem.getValue());
+			int id = SymbolTable.decodeNonTerminal(symbol);
+			direct[id].or(suffix);
+			if (suffixNullable && id != head) includes.get(id).add(head);
 
+			if (!firstSet.isNullable(id)) {
+				suffix.clear();
+				suffixNullable = false;
 			}
+			suffix.or(firstSet.getFirst(id));
 		}
 	}
 
 	/**
-	 * 注册一个节点
-	 * @param dependencyTrees
-	 * @param nonTer
-	 * @return
+	 * DeRemer–Pennello digraph算法
+	 * F(x) = direct(x) ∪ { F(y) | x includes y }
 	 */
-	private DependencyTree registerDependencyTree(Map<String, DependencyTree> dependencyTrees, String nonTer) {
-		DependencyTree curSubItemDepTree = dependencyTrees.get(nonTer);
-		if (curSubItemDepTree == null) {
-			curSubItemDepTree = new DependencyTree(nonTer, dependencyTrees);
-			dependencyTrees.put(nonTer, curSubItemDepTree);
+	private BitSet[] digraph(BitSet[] direct, List<List<Integer>> includes) {
+		int count = direct.length;
+		BitSet[] result = new BitSet[count];
+		int[] depth = new int[count];
+		Deque<Integer> stack = new ArrayDeque<>();
+
+		for (int x = 0; x < count; x++) {
+			if (depth[x] == 0) traverse(x, direct, includes, result, depth, stack);
 		}
-		return curSubItemDepTree;
+		return result;
 	}
 
+	private void traverse(int x, BitSet[] direct, List<List<Integer>> includes,
+						  BitSet[] result, int[] depth, Deque<Integer> stack) {
+		stack.push(x);
+		int d = stack.size();
+		depth[x] = d;
+		result[x] = (BitSet) direct[x].clone();
+
+		for (int y : includes.get(x)) {
+			if (depth[y] == 0) traverse(y, direct, includes, result, depth, stack);
+			depth[x] = Math.min(depth[x], depth[y]);
+			result[x].or(result[y]);
+		}
 
-	public void setUpdated(boolean updated) {
-		isUpdated = updated;
+		// x是强连通分量的根，分量中的每个非终结符共享同一个Follow集
+		if (depth[x] == d) {
+			int top;
+			do {
+				top = stack.pop();
+				depth[top] = Integer.MAX_VALUE;
+				result[top] = result[x];
+			} while (top != x);
+		}
 	}
 
 	/**
-	 * 依赖树， 包含当前非终结符以及该终结符的follow集
-	 * 还包含更新该非终结符时同样要更新的 被依赖非终结符集
-	 *
-	 * Todo 依赖树中有依赖关系的节点都是被动更新的。例如文法E：
-	 *  E -> T E`
-	 *  E`的Follow集依赖于E，如果E被更新，则E`也要更新
-	 *  则E存储一个E`的指针，当E更新时，也更新E`的Follow集
+	 * @param nonTerminalId 非终结符编号
+	 * @return Follow集（终结符编号位集），不要修改返回值
 	 */
-	static final class DependencyTree {
-		String curNonTerminal;
-		Map<String, DependencyTree> fatherMaps;
-		Set<String> curFollowSet;
-
-		Set<String> dependencyNonTerminal;
-
-		/**
-		 *  更新者，在进行递归更新时，可能存在环，设置更新者可以消除对立环，而不能消除三级以上的环。
-		 *  如: Ds' -> Ds         Ds -> Ds' 可以被消除 {在这里 -> 是指更新的非终结符}
-		 *  而如：E -> T -> T' -> E 时，则不能被消除。
-		 */
-//		String updater = "";
-
-		/**
-		 * Todo 所以，以集合的方式，来消除多级环.
-		 *  以 E -> T -> S -> V -> E' 举例:
-		 *  E 对应的updater，只有 {}, depTree {T}
-		 *  T 对应的updater，只有 {E}, depTree {S}
-		 *  S 对应的updater，只有 {E, T}, depTree {V}
-		 *  V 对应的updater，只有 {E, T, S}, depTree {E'}
-		 *  ....
-		 *  而 E -> T -> S -> E :
-		 *  E 对应的updater，只有 {T, S}, depTree {T} - 检测到成环，取消更新
-		 *  T 对应的updater，只有 {E}, depTree {S}
-		 * 	S 对应的updater，只有 {E, T}, depTree {E} - 检测到成环，取消更新
-		 *
-		 * 	Todo but!
-		 * 	 这样很消耗空间，如果假定只存在对立环，还是只用String updater好了。
-		 * 	 时间复杂度应当差不了太多，毕竟Set以hash值判断.
-		 *
-		 * 	 对立环存在是因为文法的二义性
-		 */
-		Set<String> updater = new HashSet<>();
-
-		public DependencyTree(String curNonTerminal, Map<String, DependencyTree> fatherMaps) {
-			this.curNonTerminal = curNonTerminal;
-			this.fatherMaps = fatherMaps;
-			curFollowSet = new HashSet<>();
-			dependencyNonTerminal = new HashSet<>();
-		}
-
-		public void addDependencyNonTerminal(String nonTer) {
-			if (nonTer.equals(curNonTerminal)) return ;
-
-			this.dependencyNonTerminal.add(nonTer);
-		}
-
-		/*
-		 * 每当 当前非终结符的follow集更新时，也要更新依赖项的非终结符
-		 */
-
-		public void addFollowSym(String followSym) {
-			curFollowSet.add(followSym);
-			updateDependencyNonTerminal();
-		}
-
-		public void addFollowSym(Set<String> followSymSet) {
-			curFollowSet.addAll(followSymSet);
-			updateDependencyNonTerminal();
-		}
-
-		private void updateDependencyNonTerminal() {
-			dependencyNonTerminal.forEach(nonTer -> {
-
-				DependencyTree depItem = fatherMaps.get(nonTer);
-				// 检查是否有依赖成环
-				if (updater.contains(nonTer)) {
-					// 如果更新 '我'的，将会被我更新，则取消这次更新
-					return ;
-				}
-
-				depItem.updater.add(curNonTerminal);
-				depItem.updater.addAll(this.updater);
-
-				depItem.addFollowSym(this.curFollowSet);
-			});
+	public BitSet getFollow(int nonTerminalId) {
+		if (!isUpdated) getFollowSet();
+		if (nonTerminalId >= follow.length) return new BitSet();
+		return follow[nonTerminalId];
+	}
 
-		}
+	public void setUpdated(boolean updated) {
+		isUpdated = updated;
 	}
 
 	public void printFollowSet() {
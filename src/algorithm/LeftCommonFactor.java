@@ -26,6 +26,8 @@ public class LeftCommonFactor {
 		});
 
 		cfg.getProductionGroupMap().putAll(appProductions);
+		// 新增的非终结符和子项需要分配编号
+		cfg.internSymbols();
 		return this.cfg;
 	}
 
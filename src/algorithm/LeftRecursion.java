@@ -39,6 +39,8 @@ public class LeftRecursion {
 			}
 			eliminateImmediateLeftRecursion(String.valueOf(list[i]));
 		}
+		// 新增的非终结符和子项需要分配编号
+		cfg.internSymbols();
 		return this.cfg;
 	}
 
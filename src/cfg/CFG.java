@@ -2,11 +2,14 @@ package cfg;
 
 import cfg.production.Production;
 import cfg.production.ProductionGroup;
+import cfg.production.SubItem;
 import fout.Fout;
 import fout.attr.ColumnAttr;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,11 +28,73 @@ public class CFG implements Cloneable {
 	// Production Rule Mapping Table
 	private Map<String, ProductionGroup> productionGroupMap;
 
+	// 符号表，拷贝时复制
+	private SymbolTable symbolTable;
+
+	// 非终结符编号 -> 产生式组
+	private List<ProductionGroup> productionGroupIndex;
+
 	public CFG(CFGBuilder builder) {
 		this.nonTerminals = builder.nonTerminals;
 		this.terminals = builder.terminals;
 		this.startSymbol = builder.startSymbol;
 		this.productionGroupMap = builder.productionGroupMap;
+		this.symbolTable = new SymbolTable();
+		this.productionGroupIndex = new ArrayList<>();
+	}
+
+	/**
+	 * 为文法中的所有符号分配编号，并为还没有编号的子项设置符号编码。
+	 * 文法被修改后（增广、消除左递归、提取左公因子）需要重新调用。
+	 */
+	public void internSymbols() {
+		for (String nonTerminal : nonTerminals) {
+			symbolTable.internNonTerminal(nonTerminal);
+		}
+		for (String terminal : terminals) {
+			if (terminal.equals(SymbolTable.EpsilonSymbol)) continue;
+			symbolTable.internTerminal(terminal);
+		}
+
+		List<ProductionGroup> index = new ArrayList<>();
+		for (Map.Entry<String, ProductionGroup> entry : productionGroupMap.entrySet()) {
+			int headId = symbolTable.internNonTerminal(entry.getKey());
+			ProductionGroup group = entry.getValue();
+			group.setHeadId(headId);
+
+			while (index.size() <= headId) index.add(null);
+			index.set(headId, group);
+
+			for (Production production : group.getProductions()) {
+				production.setHeadId(headId);
+				for (SubItem subItem : production.getSubItems()) {
+					if (subItem.getSymbolId() != SymbolTable.UNDEFINED) continue;
+					subItem.setSymbolId(symbolTable.intern(subItem.getValue(), subItem.getType()));
+				}
+			}
+		}
+		productionGroupIndex = index;
+	}
+
+	public SymbolTable getSymbolTable() {
+		return symbolTable;
+	}
+
+	public int getStartSymbolId() {
+		return symbolTable.getNonTerminalId(startSymbol);
+	}
+
+	/**
+	 * 通过非终结符编号获取产生式组
+	 * @param nonTerminalId 非终结符编号
+	 * @return 产生式组，不存在返回null
+	 */
+	public ProductionGroup getProductionGroup(int nonTerminalId) {
+		if (nonTerminalId >= 0 && nonTerminalId < productionGroupIndex.size()) {
+			ProductionGroup group = productionGroupIndex.get(nonTerminalId);
+			if (group != null) return group;
+		}
+		return productionGroupMap.get(symbolTable.getNonTerminal(nonTerminalId));
 	}
 
 	public void setNonTerminals(Set<String> nonTerminals) {
@@ -151,6 +216,9 @@ public class CFG implements Cloneable {
 		dest.setNonTerminals(nonTerminals);
 		dest.setTerminals(terminals);
 		dest.setProductionGroupMap(productionGroupMap);
+		// 复制符号表，拷贝上的变换（增广、消除左递归）不会为原文法分配新编号；产生式组索引需要指向拷贝后的产生式组
+		dest.symbolTable = symbolTable.copy();
+		dest.internSymbols();
 	}
 
 	public String getAddNonTerminalName(String nonTer) {
@@ -7,7 +7,6 @@ import cfg.production.SubItemType;
 import fin.FileAttrCode;
 import fin.Fin;
 import fin.callback.IOArrayCallback;
-import logger.Log;
 
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -28,12 +27,16 @@ public class CFGBuilder {
 	// 每个产生式头部对应一个产生式集合
 	public Map<String, ProductionGroup> productionGroupMap;
 
+	/**
+	 * @throws IllegalStateException 文件无法读取，或文法格式有误
+	 */
 	public CFGBuilder(String filename) {
 		nonTerminals = new LinkedHashSet<>();
 		terminals = new LinkedHashSet<>();
 		productionGroupMap = new LinkedHashMap<>();
 
 		read(filename);
+		if (startSymbol == null) throw new IllegalStateException("empty grammar: " + filename);
 		extract();
 	}
 
@@ -43,8 +46,7 @@ public class CFGBuilder {
 		// 读取文件
 		utils.readFile(filename, (IOArrayCallback) (array, code) -> {
 			if (code != FileAttrCode.readSuccess) {
-				Log.error("read file error!");
-				return ;
+				throw new IllegalStateException("read file error: " + filename);
 			}
 
 			// preHead为上次处理的产生式头部
@@ -64,8 +66,7 @@ public class CFGBuilder {
 				} else if (production.length == 1) {
 					// 如果在不完整的产生式情况，并且还不存在上一个preHead，则有异常。
 					if (preHead == null) {
-						Log.warning("production grammar has wrong !");
-						return ;
+						throw new IllegalStateException("production grammar has wrong: " + str.trim());
 					}
 					incompleteProductionProcess(preHead, production[0].trim());
 				}
@@ -115,8 +116,7 @@ public class CFGBuilder {
 		 * 不可能存在productionSet为空的情况，如果为空，肯定包含错误。
 		 */
 		if (productionSet == null) {
-			Log.warning("production grammar has wrong !");
-			return ;
+			throw new IllegalStateException("production grammar has wrong: " + production);
 		}
 
 		// 分割产生式体
@@ -199,6 +199,9 @@ public class CFGBuilder {
 	}
 
 	public CFG build() {
-		return new CFG(this);
+		CFG cfg = new CFG(this);
+		// 为终结符和非终结符分配编号
+		cfg.internSymbols();
+		return cfg;
 	}
 }
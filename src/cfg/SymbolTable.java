@@ -0,0 +1,168 @@
+package cfg;
+
+import cfg.production.SubItemType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 符号表，为文法中的终结符和非终结符分配稠密的整数编号
+ *
+ * 终结符和非终结符各自从0开始编号，终结符0固定为输入右端结束标记$。
+ * 产生式体中的子项使用统一的符号编码：
+ *  终结符编码为其编号 (>= 0)
+ *  非终结符编码为其编号按位取反 (~id, < 0)
+ *  ε 不分配编号，编码为EPSILON
+ *
+ * 文法拷贝时符号表随之复制，拷贝之前已有的符号在两者中编号一致，之后各自新增的符号互不影响。
+ */
+public class SymbolTable {
+	public static final String EndSymbol = "$";
+	public static final String EpsilonSymbol = "ε";
+
+	// 输入右端结束标记$的终结符编号
+	public static final int END = 0;
+	// ε的符号编码
+	public static final int EPSILON = Integer.MIN_VALUE;
+	// 还没有分配编号的子项
+	public static final int UNDEFINED = Integer.MAX_VALUE;
+
+	private final List<String> terminals = new ArrayList<>();
+	private final Map<String, Integer> terminalIds = new HashMap<>();
+
+	private final List<String> nonTerminals = new ArrayList<>();
+	private final Map<String, Integer> nonTerminalIds = new HashMap<>();
+
+	public SymbolTable() {
+		internTerminal(EndSymbol);
+	}
+
+	/**
+	 * @return 符号表的拷贝，编号与原符号表相同
+	 */
+	public SymbolTable copy() {
+		SymbolTable dest = new SymbolTable();
+		for (int i = 1; i < terminals.size(); i++) dest.internTerminal(terminals.get(i));
+		for (String nonTerminal : nonTerminals) dest.internNonTerminal(nonTerminal);
+		return dest;
+	}
+
+	/**
+	 * 获取终结符编号，如果不存在则分配一个新编号
+	 * @param terminal 终结符
+	 * @return 终结符编号
+	 */
+	public int internTerminal(String terminal) {
+		Integer id = terminalIds.get(terminal);
+		if (id == null) {
+			id = terminals.size();
+			terminals.add(terminal);
+			terminalIds.put(terminal, id);
+		}
+		return id;
+	}
+
+	/**
+	 * 获取非终结符编号，如果不存在则分配一个新编号
+	 * @param nonTerminal 非终结符
+	 * @return 非终结符编号
+	 */
+	public int internNonTerminal(String nonTerminal) {
+		Integer id = nonTerminalIds.get(nonTerminal);
+		if (id == null) {
+			id = nonTerminals.size();
+			nonTerminals.add(nonTerminal);
+			nonTerminalIds.put(nonTerminal, id);
+		}
+		return id;
+	}
+
+	/**
+	 * 获取子项的符号编码，如果不存在则分配
+	 * @param value 子项的值
+	 * @param type 子项类型
+	 * @return 符号编码
+	 */
+	public int intern(String value, SubItemType type) {
+		if (type == SubItemType.nonTerminal) return encodeNonTerminal(internNonTerminal(value));
+		if (value.equals(EpsilonSymbol)) return EPSILON;
+		return internTerminal(value);
+	}
+
+	/**
+	 * @return 终结符编号，不存在返回-1
+	 */
+	public int getTerminalId(String terminal) {
+		Integer id = terminalIds.get(terminal);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @return 非终结符编号，不存在返回-1
+	 */
+	public int getNonTerminalId(String nonTerminal) {
+		Integer id = nonTerminalIds.get(nonTerminal);
+		return id == null ? -1 : id;
+	}
+
+	public String getTerminal(int id) {
+		return terminals.get(id);
+	}
+
+	public String getNonTerminal(int id) {
+		return nonTerminals.get(id);
+	}
+
+	public int getTerminalCount() {
+		return terminals.size();
+	}
+
+	public int getNonTerminalCount() {
+		return nonTerminals.size();
+	}
+
+	/**
+	 * 根据符号编码获取符号名称
+	 * @param symbol 符号编码
+	 * @return 符号名称
+	 */
+	public String getName(int symbol) {
+		if (symbol == EPSILON) return EpsilonSymbol;
+		if (isNonTerminal(symbol)) return nonTerminals.get(decodeNonTerminal(symbol));
+		return terminals.get(symbol);
+	}
+
+	/**
+	 * 将终结符编号的位集转换为终结符名称集合
+	 * @param terminalIds 终结符编号位集
+	 * @return 终结符名称集合
+	 */
+	public Set<String> toTerminalNames(BitSet terminalIds) {
+		Set<String> result = new LinkedHashSet<>();
+		for (int i = terminalIds.nextSetBit(0); i >= 0; i = terminalIds.nextSetBit(i + 1)) {
+			result.add(terminals.get(i));
+		}
+		return result;
+	}
+
+	public static boolean isTerminal(int symbol) {
+		return symbol >= 0 && symbol != UNDEFINED;
+	}
+
+	public static boolean isNonTerminal(int symbol) {
+		return symbol < 0 && symbol != EPSILON;
+	}
+
+	public static int encodeNonTerminal(int nonTerminalId) {
+		return ~nonTerminalId;
+	}
+
+	public static int decodeNonTerminal(int symbol) {
+		return ~symbol;
+	}
+}
@@ -0,0 +1,69 @@
+package cfg.production;
+
+import cfg.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 不可变的产生式，产生式体以符号编码数组存储，按下标访问为O(1)
+ *
+ * 产生式体中的ε被去掉，即 A -> ε 的长度为0。
+ * 由ProductionIdGenerate在重新编号时根据Production生成，Production的LinkedList作为打印时的视图保留。
+ */
+public final class CompactProduction {
+	private final int id;
+	// 产生式头部的非终结符编号
+	private final int headId;
+	// 产生式体的符号编码
+	private final int[] body;
+	// 与body一一对应的子项
+	private final SubItem[] subItems;
+
+	public CompactProduction(int id, Production production) {
+		this.id = id;
+		this.headId = production.getHeadId();
+
+		List<SubItem> items = new ArrayList<>(production.getSubItems().size());
+		for (SubItem subItem : production.getSubItems()) {
+			if (subItem.getSymbolId() == SymbolTable.EPSILON) continue;
+			items.add(subItem);
+		}
+
+		this.subItems = items.toArray(new SubItem[0]);
+		this.body = new int[subItems.length];
+		for (int i = 0; i < subItems.length; i++) {
+			body[i] = subItems[i].getSymbolId();
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getHeadId() {
+		return headId;
+	}
+
+	public int length() {
+		return body.length;
+	}
+
+	/**
+	 * @param pos 位置
+	 * @return pos处的符号编码，超出产生式体时返回SymbolTable.EPSILON
+	 */
+	public int getSymbol(int pos) {
+		if (pos >= body.length) return SymbolTable.EPSILON;
+		return body[pos];
+	}
+
+	/**
+	 * @param pos 位置
+	 * @return pos处的子项，超出产生式体时返回null
+	 */
+	public SubItem getSubItem(int pos) {
+		if (pos >= subItems.length) return null;
+		return subItems[pos];
+	}
+}
@@ -9,20 +9,19 @@ import java.util.LinkedList;
  * 每个产生式都有标记
  */
 public class Production implements Cloneable {
-	public static int globalIdCount = -1;
-
-	private int id;
+	// 产生式编号，由ProductionIdGenerate在重新编号时分配，之前为-1
+	private int id = -1;
+	// 产生式头部的非终结符编号
+	private int headId = -1;
 	private String productionStr;
 	private LinkedList<SubItem> subItems = new LinkedList<>();
 
 	public Production(String productionStr) {
 		this.productionStr = productionStr;
-		id = ++globalIdCount;
 	}
 
 	public Production(LinkedList<SubItem> subItems) {
 		this.subItems = subItems;
-		id = ++globalIdCount;
 	}
 
 	/**
@@ -61,6 +60,14 @@ public class Production implements Cloneable {
 		this.id = id;
 	}
 
+	public int getHeadId() {
+		return headId;
+	}
+
+	public void setHeadId(int headId) {
+		this.headId = headId;
+	}
+
 	public String getProductionStr() {
 		return productionStr;
 	}
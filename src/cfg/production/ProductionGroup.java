@@ -11,6 +11,8 @@ public class ProductionGroup implements Cloneable {
 
 	// 该产生式组的产生式头部
 	private String productionHead;
+	// 产生式头部的非终结符编号
+	private int headId = -1;
 	// 该组是否有epsilon产生式
 	private boolean hasEpsilon;
 	// 为了输出效果，用LinkedHashSet
@@ -44,6 +46,14 @@ public class ProductionGroup implements Cloneable {
 		this.productionHead = productionHead;
 	}
 
+	public int getHeadId() {
+		return headId;
+	}
+
+	public void setHeadId(int headId) {
+		this.headId = headId;
+	}
+
 	public boolean isHasEpsilon() {
 		return hasEpsilon;
 	}
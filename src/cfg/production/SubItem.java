@@ -1,5 +1,7 @@
 package cfg.production;
 
+import cfg.SymbolTable;
+
 import java.io.Serializable;
 
 /**
@@ -11,6 +13,8 @@ public class SubItem implements Cloneable, Serializable {
 	 */
 	private String value;
 	private SubItemType type;
+	// 符号编码，由SymbolTable分配
+	private int symbolId = SymbolTable.UNDEFINED;
 
 	public SubItem(String value, SubItemType type) {
 		this.value = value;
@@ -19,6 +23,7 @@ public class SubItem implements Cloneable, Serializable {
 
 	public void setValue(String value) {
 		this.value = value;
+		this.symbolId = SymbolTable.UNDEFINED;
 	}
 
 	public String getValue() {
@@ -27,12 +32,23 @@ public class SubItem implements Cloneable, Serializable {
 
 	public void setType(SubItemType type) {
 		this.type = type;
+		this.symbolId = SymbolTable.UNDEFINED;
 	}
 
 	public SubItemType getType() {
 		return type;
 	}
 
+	public void setSymbolId(int symbolId) {
+		this.symbolId = symbolId;
+	}
+
+	/**
+	 * @return 符号编码，终结符 >= 0，非终结符 < 0，ε为SymbolTable.EPSILON
+	 */
+	public int getSymbolId() {
+		return symbolId;
+	}
 
 
 	public SubItem copy() {
@@ -4,10 +4,11 @@ package fin;
 import logger.Log;
 
 import java.io.*;
+import java.util.Arrays;
 
 public class BufferIO {
 	public static final char EOF = '\0';
-	public static boolean stopLexicalAnalysis = false;
+	public static final int DefaultBufferSize = 4096;
 
 	// Buffer number
 	private static final int TAG_ONE = 1;
@@ -16,7 +17,9 @@ public class BufferIO {
 
 
 	// File operations
-	private final BufferedReader reader;
+	private Reader reader;
+	// 从文件读取时，读完后输出调试信息
+	private boolean isFile;
 	// Buffer
 	private final int bufferSize;
 	private char[] bufferOne, bufferTwo;
@@ -24,10 +27,19 @@ public class BufferIO {
 	private int lexemeBegin = 0;
 	private int forward = -1;
 
-	private int readEachLength = 0;
+	// 下标为Tag - 1：缓冲区第一个字符在输入中的偏移量，缓冲区中的字符数
+	private final int[] bufferOffset = new int[2];
+	private final int[] bufferLength = new int[2];
+	// mark()记录的偏移量
+	private int markOffset = 0;
+	// 读到输入末尾的EOF后为true，每个BufferIO独立，多个输入可以在不同线程中同时分析
+	private boolean stopLexicalAnalysis = false;
+	// retract()退回到前一个缓冲区后为true，再次越过边界时另一个缓冲区已经读入，不能重新读取
+	private boolean nextBufferLoaded = false;
 
 	private BufferIO(Builder builder) {
 		this.reader = builder.reader;
+		this.isFile = builder.isFile;
 		this.bufferSize = builder.bufferSize;
 		bufferOne = new char[builder.bufferSize];
 		bufferTwo = new char[builder.bufferSize];
@@ -83,20 +95,48 @@ public class BufferIO {
 
 		if (c == EOF) {
 			if (forward == bufferSize - 1) {
-				if (currentTag == TAG_ONE) {
-					loadBuffer(TAG_TWO);
-					forward = -1;
+				int next = currentTag == TAG_ONE ? TAG_TWO : TAG_ONE;
+				if (nextBufferLoaded) {
+					currentTag = next;
+					nextBufferLoaded = false;
 				} else {
-					loadBuffer(TAG_ONE);
-					forward = -1;
+					// 只有读满的缓冲区末尾才是边界标记
+					bufferOffset[next - 1] = bufferOffset[currentTag - 1] + bufferSize - 1;
+					loadBuffer(next);
 				}
+				forward = -1;
 			} else {
-				BufferIO.stopLexicalAnalysis = true;
+				stopLexicalAnalysis = true;
 			}
 		}
 		return c;
 	}
 
+	/**
+	 * 读取下一个字符，跳过缓冲区末尾的EOF标记，只在输入结束时返回EOF
+	 */
+	public char read() {
+		char c = nextChar();
+		if (c == EOF && !stopLexicalAnalysis) c = nextChar();
+		return c;
+	}
+
+	/**
+	 * 退回最近通过read()读取的count个字符，用于最长匹配时回退多读的字符
+	 * 可以退回到前一个缓冲区，所以count必须小于缓冲区大小
+	 */
+	public void retract(int count) {
+		if (count <= 0) return;
+		forward -= count;
+		if (forward < -1) {
+			// 前一个缓冲区的最后一个字符位于bufferSize - 2，forward为-1时对应它
+			currentTag = currentTag == TAG_ONE ? TAG_TWO : TAG_ONE;
+			forward += bufferSize - 1;
+			nextBufferLoaded = true;
+		}
+		stopLexicalAnalysis = false;
+	}
+
 	private void loadBuffer(int Tag) {
 		currentTag = Tag;
 		char[] buffer = getCurrentBufferReference();
@@ -105,18 +145,23 @@ public class BufferIO {
 			int resultCode = reader.read(buffer, 0, bufferSize - 1);
 
 			if (resultCode != -1) {
-				readEachLength = resultCode;
+				bufferLength[Tag - 1] = resultCode;
 				buffer[resultCode] = EOF;
 			} else {
+				bufferLength[Tag - 1] = 0;
+				buffer[0] = EOF;
 				close();
-				Log.debug("The file has been read.");
+				if (isFile) Log.debug("The file has been read.");
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
-	private void close() {
+	/**
+	 * 关闭输入，读到输入结束时会自动关闭；提前结束分析时由调用者关闭，可以重复调用
+	 */
+	public void close() {
 		try {
 			if (reader != null)
 				reader.close();
@@ -131,8 +176,88 @@ public class BufferIO {
 	}
 
 	public String getCurrentBufferString() {
-		if (currentTag == TAG_ONE) return new String(bufferOne, lexemeBegin, readEachLength - lexemeBegin);
-		else return new String(bufferTwo, lexemeBegin, readEachLength - lexemeBegin);
+		int length = bufferLength[currentTag - 1] - lexemeBegin;
+		if (currentTag == TAG_ONE) return new String(bufferOne, lexemeBegin, length);
+		else return new String(bufferTwo, lexemeBegin, length);
+	}
+
+	/**
+	 * @return 下一个要读取的字符在输入中的偏移量，读到输入末尾后为输入的长度
+	 */
+	public int offset() {
+		int next = stopLexicalAnalysis ? forward : forward + 1;
+		return bufferOffset[currentTag - 1] + next;
+	}
+
+	/**
+	 * 记录当前偏移量，作为词素的开始
+	 */
+	public void mark() {
+		markOffset = offset();
+	}
+
+	public int getMarkOffset() {
+		return markOffset;
+	}
+
+	/**
+	 * @param offset 输入中的偏移量
+	 * @throws IndexOutOfBoundsException 该字符不在两个缓冲区中
+	 */
+	public char charAt(int offset) {
+		for (int i = 0; i < 2; i++) {
+			int index = offset - bufferOffset[i];
+			if (index >= 0 && index < bufferLength[i]) return i == 0 ? bufferOne[index] : bufferTwo[index];
+		}
+		throw new IndexOutOfBoundsException("offset " + offset + " is not buffered");
+	}
+
+	/**
+	 * 输入中 [offset, offset + length) 的字符视图，不复制字符
+	 * 字符所在的缓冲区被重新读入后，访问视图会抛出IndexOutOfBoundsException，需要保留时调用toString()
+	 */
+	public CharSequence text(int offset, int length) {
+		return new TextView(offset, length);
+	}
+
+	private final class TextView implements CharSequence {
+		private final int offset;
+		private final int length;
+
+		TextView(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+			return BufferIO.this.charAt(offset + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new IndexOutOfBoundsException("[" + start + ", " + end + "), length " + length);
+			}
+			return new TextView(offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) chars[i] = BufferIO.this.charAt(offset + i);
+			return new String(chars);
+		}
+	}
+
+	public boolean isStopLexicalAnalysis() {
+		return stopLexicalAnalysis;
 	}
 
 	public void reset() {
@@ -141,9 +266,28 @@ public class BufferIO {
 		stopLexicalAnalysis = false;
 	}
 
+	/**
+	 * 换成新的输入从头读取，缓冲区重复使用，连续分析多个输入时不再分配缓冲区
+	 */
+	public BufferIO reopen(Reader reader) {
+		this.reader = reader;
+		this.isFile = false;
+		lexemeBegin = 0;
+		forward = -1;
+		markOffset = 0;
+		stopLexicalAnalysis = false;
+		nextBufferLoaded = false;
+		Arrays.fill(bufferOffset, 0);
+		Arrays.fill(bufferLength, 0);
+
+		loadBuffer(TAG_ONE);
+		return this;
+	}
+
 	public static final class Builder {
-		private BufferedReader reader = null;
-		private int bufferSize = 4096;
+		private Reader reader = null;
+		private boolean isFile = false;
+		private int bufferSize = DefaultBufferSize;
 
 		public Builder() { }
 
@@ -152,15 +296,18 @@ public class BufferIO {
 			return this;
 		}
 
+		/**
+		 * @throws IllegalArgumentException 文件不存在
+		 */
 		public Builder setFilePath(String filePath) {
 			try {
 				File file = new File(filePath);
 				if (!file.exists()) {
-					Log.error("filePath is wrong.");
-					System.exit(1);
+					throw new IllegalArgumentException("filePath is wrong: " + filePath);
 				}
 
 				this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+				this.isFile = true;
 			} catch (FileNotFoundException e) {
 				e.printStackTrace();
 			}
@@ -168,6 +315,15 @@ public class BufferIO {
 			return this;
 		}
 
+		/**
+		 * 从reader读取，如字符串输入的StringReader；BufferIO自身有缓冲区，不需要BufferedReader
+		 */
+		public Builder setReader(Reader reader) {
+			this.reader = reader;
+			this.isFile = false;
+			return this;
+		}
+
 		public BufferIO build() {
 			return new BufferIO(this);
 		}
@@ -6,6 +6,7 @@ import fout.attr.ColumnAttr;
 import logger.Log;
 import lr.Item;
 import lr.ItemSet;
+import lr.KernelKey;
 import slr.ProductionIdGenerate;
 
 import java.lang.reflect.Array;
@@ -20,7 +21,7 @@ public class ItemCollection {
 	private FirstSet firstSet;
 	private ProductionIdGenerate idGenerate;
 	public ItemCollection(lr.ItemCollection itemCollection) {
-		lalrItemSets = new HashSet<>(itemCollection.getLrItemSets());
+		lalrItemSets = new LinkedHashSet<>(itemCollection.getLrItemSets());
 		this.firstSet = itemCollection.getFirstSet();
 		this.idGenerate = itemCollection.getIdGenerate();
 	}
@@ -47,6 +48,10 @@ public class ItemCollection {
 	 *     * X -α-> Y (因为X是K、L的合并项)
 	 */
 	public void construct() {
+		// 合并过程中会产生内容相同的不同项集，之后再合并，所以这里按引用区分项集
+		Set<ItemSet> backup = newIdentitySet();
+		backup.addAll(lalrItemSets);
+		lalrItemSets = backup;
 
 		Set<ItemSet> rec;
 		while ((rec = findSameCore(lalrItemSets)) != null) {
@@ -75,12 +80,70 @@ public class ItemCollection {
 	}
 
 
+	/**
+	 * 按核心哈希合并，与construct()结果相同：
+	 *  1. 一次遍历，按LR(0)核心将项集放入桶中，同一个桶的项集用并查集合并到桶中第一个项集；
+	 *  2. 每个桶只合并一次，相同核心的项合并lookhead；
+	 *  3. 一次遍历所有Goto表，源项集与目标项集都替换为所在桶的合并项集。
+	 * 时间与LR(1)项集数成线性关系。
+	 */
+	public void constructByCore() {
+		ItemSet[] itemSets = lalrItemSets.toArray(new ItemSet[0]);
+		int count = itemSets.length;
+
+		Map<ItemSet, Integer> index = new IdentityHashMap<>();
+		for (int i = 0; i < count; i++) index.put(itemSets[i], i);
+
+		// 按核心分桶
+		int[] parent = new int[count];
+		Map<KernelKey, Integer> buckets = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			parent[i] = i;
+			Integer root = buckets.putIfAbsent(KernelKey.ofCore(itemSets[i].getLrItems()), i);
+			if (root != null) parent[i] = find(parent, root);
+		}
+
+		// 每个桶合并一次，相同核心的项由addItem合并lookhead
+		Map<Integer, ItemSet> merged = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			ItemSet newItemSet = merged.computeIfAbsent(find(parent, i), k -> new ItemSet(idGenerate, firstSet));
+			for (Item lrItem : itemSets[i].getLrItems()) newItemSet.addItem(copyItem(lrItem));
+		}
+
+		// 重定向Goto表
+		for (int i = 0; i < count; i++) {
+			ItemSet source = merged.get(find(parent, i));
+			for (var entry : itemSets[i].getGotoTables().entrySet()) {
+				ItemSet target = merged.get(find(parent, index.get(entry.getValue())));
+				source.getGotoTables().put(entry.getKey(), target);
+			}
+		}
+
+		lalrItemSets = new LinkedHashSet<>(merged.values());
+	}
+
+	private static Set<ItemSet> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	private Item copyItem(Item item) {
+		return new Item(idGenerate, item.getProductionId(), item.getPointPos(), (BitSet) item.getLookheads().clone());
+	}
+
+	private static int find(int[] parent, int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
 	private ItemSet mergeItemSet(Set<ItemSet> rec) {
 		ItemSet newItemSet = new ItemSet(idGenerate, firstSet);
 		for (ItemSet itemSet : rec) {
-			// 合并第二分量
+			// 合并第二分量，复制lookhead，避免修改被合并的项集
 			for (Item lrItem : itemSet.getLrItems()) {
-				newItemSet.addItemCoreLookhead(lrItem);
+				newItemSet.addItemCoreLookhead(copyItem(lrItem));
 			}
 		}
 		return newItemSet;
@@ -94,7 +157,7 @@ public class ItemCollection {
 	 * @return
 	 */
 	private Set<ItemSet> mergeGotoTable(Map<Integer, ItemSet> exists, ItemSet newItemSet, Set<ItemSet> itemSets) {
-		Set<ItemSet> affectedSet = new HashSet<>();
+		Set<ItemSet> affectedSet = newIdentitySet();
 
 		// 有哪些项集可以被合并
 		Map<String, Set<ItemSet>> merge = new HashMap<>();
@@ -118,7 +181,7 @@ public class ItemCollection {
 
 				Set<ItemSet> mergeSet = merge.get(entry.getKey());
 				if (mergeSet == null) {
-					mergeSet = new HashSet<>();
+					mergeSet = newIdentitySet();
 				}
 				mergeSet.add(entry.getValue());
 				merge.put(entry.getKey(), mergeSet);
@@ -195,7 +258,7 @@ public class ItemCollection {
 		/*
 		 * 对每个子项集族进行合并, 这些项集族合并后生成的项集，它的Goto表依然可以进行合并，所以递归执行
 		 */
-		Map<ItemSet, Set<ItemSet>> sd = new HashMap<>();
+		Map<ItemSet, Set<ItemSet>> sd = new IdentityHashMap<>();
 		for (Map.Entry<String, Set<ItemSet>> entry : merge.entrySet()) {
 			ItemSet nSet = mergeItemSet(entry.getValue());
 			newItemSet.getGotoTables().put(entry.getKey(), nSet);
@@ -217,7 +280,7 @@ public class ItemCollection {
 	 * 在lalrItemSets中找到相同核心的项
 	 */
 	private Set<ItemSet> findSameCore(Set<lr.ItemSet> backup) {
-		Set<ItemSet> result = new HashSet<>();
+		Set<ItemSet> result = newIdentitySet();
 
 		for (ItemSet lalrItemSet : backup) {
 
@@ -247,7 +310,7 @@ public class ItemCollection {
 	 * @return
 	 */
 	private Map<ItemSet, String> findGotoSourceItemSet(Set<lr.ItemSet> lalrItemSets, Set<ItemSet> mergeSet) {
-		Map<ItemSet, String> result = new HashMap<>();
+		Map<ItemSet, String> result = new IdentityHashMap<>();
 		for (ItemSet itemSet : lalrItemSets) {
 			var entry = itemSet.getGotoTables().entrySet();
 			for (Map.Entry<String, ItemSet> stringItemSetEntry : entry) {
@@ -262,12 +325,16 @@ public class ItemCollection {
 	}
 
 	public void resetId() {
-		ItemSet.itemSetIdCount = -1;
+		idGenerate.resetItemSetId();
 		for (ItemSet lrItemSet : lalrItemSets) {
-			lrItemSet.setId(++ItemSet.itemSetIdCount);
+			lrItemSet.setId(idGenerate.nextItemSetId());
 		}
 	}
 
+	public Set<ItemSet> getLalrItemSets() {
+		return lalrItemSets;
+	}
+
 	public void printItemCollection() {
 		resetId();
 		for (ItemSet lrItemSet : lalrItemSets) {
@@ -0,0 +1,311 @@
+package lalr;
+
+import algorithm.FirstSet;
+import cfg.CFG;
+import cfg.SymbolTable;
+import cfg.production.CompactProduction;
+import fin.BufferIO;
+import fin.Fin;
+import fout.Fout;
+import fout.attr.ColumnAttr;
+import lr.ClosureTemplates;
+import parser.BufferTokenSource;
+import parser.LRDriver;
+import parser.ReduceCallback;
+import slr.Item;
+import slr.ItemCollection;
+import slr.ItemSet;
+import slr.KernelKey;
+import slr.ProductionIdGenerate;
+import table.Algorithm;
+import table.CompressedParseTable;
+import table.ParseTable;
+import table.TableImage;
+
+import java.util.*;
+
+/**
+ * LALR(1)分析表，直接在LR(0)项集族上求lookhead，不需要先构造规范LR(1)项集族
+ *
+ * 对每个LR(0)项集I的每个内核项K，以一个不在文法中的符号#作为lookhead求闭包 closure([K, #])：
+ *  对闭包中的项 [B -> γ·Xδ, a]，
+ *   a不为#时，a是goto(I, X)中内核项 [B -> γX·δ] 自生的lookhead；
+ *   a为#时，K的lookhead传播到goto(I, X)中的内核项 [B -> γX·δ]。
+ * 闭包直接套用lr.ClosureTemplates，然后沿传播关系迭代直到lookhead不再变化。
+ * 时间与空间都与LR(0)项集数成正比。
+ */
+public class LALR {
+
+	private CFG cfg;
+	private ProductionIdGenerate idGenerate;
+	private FirstSet firstSet;
+	private ClosureTemplates templates;
+	private ItemCollection lrItemCollection;
+	private SymbolTable symbolTable;
+
+	// 下标为项集编号
+	private ItemSet[] itemSets;
+	// 项集编号 -> 内核项，与lookheads的下标对应
+	private Item[][] kernels;
+	// 项集编号 -> 内核项编号 -> lookhead（终结符编号位集）
+	private BitSet[][] lookheads;
+
+	private ParseTable parseTable;
+	// 输入文件，parse()每次调用都重新打开
+	private String inputPath = Fin.getInstance().getProjectPath() + "/src/data/input/input.i";
+
+	public LALR(CFG cfg) {
+		this.cfg = cfg.copy();
+
+		// 获取LR(0)项集族
+		lrItemCollection = new ItemCollection(this.cfg);
+		lrItemCollection.generateItemCollection();
+		lrItemCollection.resetId();
+		idGenerate = lrItemCollection.getIdGenerate();
+
+		this.symbolTable = this.cfg.getSymbolTable();
+		this.firstSet = new FirstSet(this.cfg);
+		firstSet.getFirstSet();
+		this.templates = new ClosureTemplates(idGenerate, firstSet);
+
+		calculationLookheads();
+	}
+
+	private void calculationLookheads() {
+		var collection = lrItemCollection.getLrItemSets();
+		int count = collection.size();
+
+		itemSets = new ItemSet[count];
+		kernels = new Item[count][];
+		lookheads = new BitSet[count][];
+		// 项集编号 -> 内核项的 (产生式编号 << 32 | ·的位置) -> 内核项编号
+		List<Map<Long, Integer>> kernelIndex = new ArrayList<>(count);
+
+		for (ItemSet itemSet : collection) {
+			int id = itemSet.getId();
+			itemSets[id] = itemSet;
+			kernels[id] = itemSet.getLrKernelItems().toArray(new Item[0]);
+			lookheads[id] = new BitSet[kernels[id].length];
+		}
+		for (int id = 0; id < count; id++) {
+			Map<Long, Integer> index = new HashMap<>();
+			for (int k = 0; k < kernels[id].length; k++) {
+				lookheads[id][k] = new BitSet();
+				index.put(KernelKey.encode(kernels[id][k].getProductionId(), kernels[id][k].getPointPos()), k);
+			}
+			kernelIndex.add(index);
+		}
+
+		// 增广文法的开始项 [S' -> ·S, $]
+		int start = lrItemCollection.getStartItemSet().getId();
+		for (BitSet lookhead : lookheads[start]) lookhead.set(SymbolTable.END);
+
+		// 传播关系，(项集编号, 内核项编号) -> {(项集编号, 内核项编号)}，以long编码
+		Map<Long, List<Long>> propagates = new HashMap<>();
+
+		for (int id = 0; id < count; id++) {
+			Map<String, ItemSet> gotoTables = itemSets[id].getGotoTables();
+
+			for (int k = 0; k < kernels[id].length; k++) {
+				Item kernel = kernels[id][k];
+				long from = node(id, k);
+
+				int expect = kernel.getExpectSymbol();
+				if (expect == SymbolTable.EPSILON) continue;
+
+				// 内核项自身移入后，lookhead全部传播
+				ItemSet target = gotoTables.get(symbolTable.getName(expect));
+				int targetKernel = kernelIndex.get(target.getId())
+						.get(KernelKey.encode(kernel.getProductionId(), kernel.getPointPos() + 1));
+				propagates.computeIfAbsent(from, key -> new ArrayList<>()).add(node(target.getId(), targetKernel));
+
+				if (!SymbolTable.isNonTerminal(expect)) continue;
+
+				// closure([K, #])中的项
+				BitSet first = new BitSet();
+				boolean nullable = firstSet.addFirst(kernel.getProduction(), kernel.getPointPos() + 1, first);
+
+				for (ClosureTemplates.Template template : templates.getTemplates(SymbolTable.decodeNonTerminal(expect))) {
+					CompactProduction production = idGenerate.getCompactProduction(template.getProductionId());
+					if (production.length() == 0) continue;
+
+					target = gotoTables.get(symbolTable.getName(production.getSymbol(0)));
+					int targetId = target.getId();
+					targetKernel = kernelIndex.get(targetId).get(KernelKey.encode(production.getId(), 1));
+
+					// 自生lookhead
+					BitSet dest = lookheads[targetId][targetKernel];
+					dest.or(template.getSpontaneous());
+					if (template.isPropagate()) {
+						dest.or(first);
+						// 传播lookhead
+						if (nullable) {
+							propagates.computeIfAbsent(from, key -> new ArrayList<>()).add(node(targetId, targetKernel));
+						}
+					}
+				}
+			}
+		}
+
+		// 沿传播关系迭代
+		Queue<Long> queue = new ArrayDeque<>();
+		for (int id = 0; id < count; id++) {
+			for (int k = 0; k < kernels[id].length; k++) queue.add(node(id, k));
+		}
+		while (!queue.isEmpty()) {
+			long from = queue.poll();
+			List<Long> targets = propagates.get(from);
+			if (targets == null) continue;
+
+			BitSet source = lookheads[(int) (from >>> 32)][(int) from];
+			for (long to : targets) {
+				BitSet dest = lookheads[(int) (to >>> 32)][(int) to];
+				int before = dest.cardinality();
+				dest.or(source);
+				if (dest.cardinality() != before) queue.add(to);
+			}
+		}
+	}
+
+	/**
+	 * 将 (项集编号, 内核项编号) 编码为一个long，作为传播关系的结点
+	 */
+	private static long node(int itemSetId, int kernelId) {
+		return ((long) itemSetId << 32) | kernelId;
+	}
+
+	/**
+	 * 求项集中ε产生式归约项的lookhead，这些项不是内核项，由内核项的lookhead经闭包得到
+	 * @return 产生式编号 -> lookhead
+	 */
+	private Map<Integer, BitSet> calculationEpsilonLookheads(int id) {
+		Map<Integer, BitSet> result = new LinkedHashMap<>();
+
+		for (int k = 0; k < kernels[id].length; k++) {
+			Item kernel = kernels[id][k];
+			int expect = kernel.getExpectSymbol();
+			if (!SymbolTable.isNonTerminal(expect)) continue;
+
+			BitSet inherit = new BitSet();
+			if (firstSet.addFirst(kernel.getProduction(), kernel.getPointPos() + 1, inherit)) {
+				inherit.or(lookheads[id][k]);
+			}
+
+			for (ClosureTemplates.Template template : templates.getTemplates(SymbolTable.decodeNonTerminal(expect))) {
+				if (idGenerate.getCompactProduction(template.getProductionId()).length() != 0) continue;
+
+				BitSet dest = result.computeIfAbsent(template.getProductionId(), key -> new BitSet());
+				dest.or(template.getSpontaneous());
+				if (template.isPropagate()) dest.or(inherit);
+			}
+		}
+		return result;
+	}
+
+	public void construct() {
+		parseTable = new ParseTable(itemSets.length,
+				symbolTable.getTerminalCount(), symbolTable.getNonTerminalCount(),
+				idGenerate.getProductionHeads(), idGenerate.getProductionLengths(),
+				lrItemCollection.getStartItemSet().getId());
+
+		for (ItemSet itemSet : itemSets) {
+			int id = itemSet.getId();
+
+			for (int k = 0; k < kernels[id].length; k++) {
+				analyze(itemSet, kernels[id][k], lookheads[id][k]);
+			}
+
+			// 非内核项只有移入，或者ε产生式的归约
+			Map<Integer, BitSet> epsilonLookheads = calculationEpsilonLookheads(id);
+			for (Item item : itemSet.getLrNonKernelItems()) {
+				analyze(itemSet, item, epsilonLookheads.get(item.getProductionId()));
+			}
+
+			for (var item : itemSet.getGotoTables().entrySet()) {
+				int nonTerminal = symbolTable.getNonTerminalId(item.getKey());
+				if (nonTerminal < 0) continue;
+				parseTable.setGoto(id, nonTerminal, item.getValue().getId());
+			}
+		}
+		parseTable.reportConflicts(symbolTable);
+	}
+
+	private void analyze(ItemSet itemSet, Item item, BitSet lookhead) {
+		int expect = item.getExpectSymbol();
+		if (expect != SymbolTable.EPSILON) {
+			if (SymbolTable.isNonTerminal(expect)) return;
+
+			// add actionTables
+			int jmpItemSetId = itemSet.getGotoTables().get(symbolTable.getName(expect)).getId();
+			parseTable.setAction(itemSet.getId(), expect, ParseTable.shift(jmpItemSetId));
+			return;
+		}
+
+		if (item.getProduction().getHeadId() == cfg.getStartSymbolId()) {
+			parseTable.setAction(itemSet.getId(), SymbolTable.END, ParseTable.accept());
+			return;
+		}
+
+		if (lookhead == null) return;
+		for (int t = lookhead.nextSetBit(0); t >= 0; t = lookhead.nextSetBit(t + 1)) {
+			parseTable.setAction(itemSet.getId(), t, ParseTable.reduce(item.getProductionId()));
+		}
+	}
+
+	/**
+	 * 分析输入，不输出分析过程，每次归约调用callback
+	 * @return 输入是否被接受
+	 */
+	public boolean parse(ReduceCallback callback) {
+		LRDriver driver = new LRDriver(parseTable);
+		return driver.parse(new BufferTokenSource(openInput(), symbolTable), callback);
+	}
+
+	/**
+	 * 设置分析的输入文件，默认为 src/data/input/input.i
+	 */
+	public void setInputPath(String inputPath) {
+		this.inputPath = inputPath;
+	}
+
+	private BufferIO openInput() {
+		return new BufferIO.Builder().setFilePath(inputPath).build();
+	}
+
+	public ParseTable getParseTable() {
+		return parseTable;
+	}
+
+	/**
+	 * @return 由当前分析表生成的压缩分析表，需先调用construct()
+	 */
+	public CompressedParseTable compress() {
+		return new CompressedParseTable(parseTable);
+	}
+
+	public void printLookheads() {
+		Fout fout = new Fout(ColumnAttr.qCreate("ItemSet", "KernelItem", "Lookhead"));
+		for (int id = 0; id < kernels.length; id++) {
+			for (int k = 0; k < kernels[id].length; k++) {
+				Item item = kernels[id][k];
+				fout.insertln("I" + id,
+						item.getProductionHead() + " -> " + idGenerate.getProduction(item.getProductionId()).getProductionStr()
+								+ " (" + item.getPointPos() + ")",
+						symbolTable.toTerminalNames(lookheads[id][k]));
+			}
+		}
+		fout.fout();
+	}
+
+	/**
+	 * @param grammarHash 文法内容的哈希，见TableCache.hash()
+	 * @return 可写入缓存的分析表，需先调用construct()
+	 */
+	public TableImage toTableImage(byte[] grammarHash) {
+		return TableImage.of(Algorithm.LALR, grammarHash, symbolTable, idGenerate.getCompactProductions(), parseTable);
+	}
+
+	public void printActionAndGoto() {
+		parseTable.printParseTable(cfg);
+	}
+}
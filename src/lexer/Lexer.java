@@ -0,0 +1,82 @@
+package lexer;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+
+/**
+ * 最小化DFA驱动的词法分析器，由LexerBuilder构造
+ *
+ * 直接在BufferIO的双缓冲区上逐字符运行DFA，按最长匹配识别词法单元，多读的字符通过retract()退回，
+ * 每个词法单元只返回终结符编号，不创建String。
+ * 构造完成后不可变，可以被多个线程共享，每个输入使用自己的BufferIO。
+ */
+public final class Lexer {
+	// 匹配的内容被跳过
+	public static final int SKIP = -2;
+	// 不是接受状态
+	static final int NONE = -3;
+	// 无法识别
+	public static final int ERROR = -1;
+
+	// 字符 -> 等价类
+	private final char[] classMap;
+	private final int classCount;
+	// transitions[state * classCount + class]，-1表示没有转换
+	private final int[] transitions;
+	// 状态 -> 词法单元编号，不接受为NONE
+	private final int[] accepts;
+
+	Lexer(char[] classMap, int classCount, int[] transitions, int[] accepts) {
+		this.classMap = classMap;
+		this.classCount = classCount;
+		this.transitions = transitions;
+		this.accepts = accepts;
+	}
+
+	/**
+	 * 读取下一个词法单元
+	 * 最长匹配多读的字符数必须小于BufferIO的缓冲区大小
+	 * 返回时词素为BufferIO中 [getMarkOffset(), offset()) 的字符
+	 * @return 终结符编号；输入结束时返回SymbolTable.END；无法识别时跳过一个字符并返回ERROR
+	 */
+	public int nextToken(BufferIO buffer) {
+		while (true) {
+			buffer.mark();
+			if (buffer.isStopLexicalAnalysis()) return SymbolTable.END;
+
+			int state = 0;
+			int length = 0;
+			int lastToken = NONE;
+			int lastLength = 0;
+			char c = BufferIO.EOF;
+			while (state >= 0) {
+				c = buffer.read();
+				length++;
+				if (c == BufferIO.EOF) break;
+
+				state = transitions[state * classCount + classMap[c]];
+				if (state >= 0 && accepts[state] != NONE) {
+					lastToken = accepts[state];
+					lastLength = length;
+				}
+			}
+
+			if (lastToken == NONE) {
+				if (length == 1 && c == BufferIO.EOF) return SymbolTable.END;
+				buffer.retract(length - 1);
+				return ERROR;
+			}
+
+			buffer.retract(length - lastLength);
+			if (lastToken != SKIP) return lastToken;
+		}
+	}
+
+	public int getStateCount() {
+		return accepts.length;
+	}
+
+	public int getClassCount() {
+		return classCount;
+	}
+}
@@ -0,0 +1,400 @@
+package lexer;
+
+import cfg.CFG;
+import cfg.SymbolTable;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * 由终结符与正则表达式构造最小化的DFA词法分析器
+ *
+ * 1. 每条规则（终结符字面量或正则表达式）以Thompson构造加入同一个NFA；
+ * 2. 按所有边的区间端点把字符划分为等价类，DFA的转换以等价类为下标；
+ * 3. 子集构造得到DFA，一个DFA状态包含多条规则的接受状态时取先添加的规则，
+ *    所以先添加的终结符字面量优先于之后添加的标识符等模式；
+ * 4. Hopcroft算法最小化，初始划分按接受的规则区分，死状态单独作为一个状态参与划分，最后去掉。
+ * 分析时按最长匹配，见Lexer。
+ *
+ * 由文法创建时，终结符$也作为字面量，识别为SymbolTable.END，与输入结束相同：
+ * 输入文件（如input.i）以$结尾时分析在$处结束，$之后的内容不再读取。
+ */
+public class LexerBuilder {
+	private final Nfa nfa = new Nfa();
+	// 规则编号 -> 输出的词法单元编号
+	private final List<Integer> tokens = new ArrayList<>();
+	// 终结符名称 -> 编号，不存在时返回-1
+	private final ToIntFunction<String> terminalIds;
+
+	public LexerBuilder() {
+		this(terminal -> -1);
+	}
+
+	private LexerBuilder(ToIntFunction<String> terminalIds) {
+		this.terminalIds = terminalIds;
+	}
+
+	/**
+	 * 以文法的所有终结符作为字面量规则，并忽略空白
+	 */
+	public static LexerBuilder fromGrammar(CFG cfg) {
+		cfg.internSymbols();
+		SymbolTable symbolTable = cfg.getSymbolTable();
+		LexerBuilder builder = new LexerBuilder(symbolTable::getTerminalId);
+		builder.addLiteral(SymbolTable.EndSymbol, SymbolTable.END);
+		for (String terminal : cfg.getTerminals()) {
+			int id = symbolTable.getTerminalId(terminal);
+			if (id != SymbolTable.END && !terminal.isEmpty()) builder.addLiteral(terminal, id);
+		}
+		return builder.ignore("\\s+");
+	}
+
+	/**
+	 * 以终结符名称作为字面量规则，并忽略空白
+	 * @param terminals 下标为终结符编号
+	 */
+	public static LexerBuilder fromTerminals(String[] terminals) {
+		return fromTerminals(terminals, Collections.emptyMap());
+	}
+
+	/**
+	 * 以终结符名称作为字面量规则，patterns中的终结符改为匹配正则表达式，并忽略空白
+	 * 正则表达式规则在所有字面量之后按终结符编号顺序添加，所以同时匹配时字面量优先，如关键字优先于标识符；
+	 * 多个正则表达式同时匹配时编号小的终结符优先，与patterns的遍历顺序无关
+	 * @param terminals 下标为终结符编号
+	 * @param patterns 终结符 -> 正则表达式，如 number -> [0-9]+
+	 * @throws IllegalArgumentException patterns中有不是终结符的名称，或正则表达式有误
+	 */
+	public static LexerBuilder fromTerminals(String[] terminals, Map<String, String> patterns) {
+		Map<String, Integer> ids = new HashMap<>();
+		for (int id = 0; id < terminals.length; id++) ids.put(terminals[id], id);
+
+		LexerBuilder builder = new LexerBuilder(terminal -> ids.getOrDefault(terminal, -1));
+		builder.addLiteral(SymbolTable.EndSymbol, SymbolTable.END);
+		for (int id = 0; id < terminals.length; id++) {
+			if (id == SymbolTable.END || terminals[id].isEmpty() || patterns.containsKey(terminals[id])) continue;
+			builder.addLiteral(terminals[id], id);
+		}
+		for (String terminal : patterns.keySet()) {
+			if (!ids.containsKey(terminal)) throw new IllegalArgumentException(terminal + " is not a terminal of the grammar");
+		}
+		for (int id = 0; id < terminals.length; id++) {
+			String regex = patterns.get(terminals[id]);
+			if (regex != null) builder.addPattern(regex, id);
+		}
+		return builder.ignore("\\s+");
+	}
+
+	public LexerBuilder addLiteral(String text, int token) {
+		nfa.addLiteral(text, tokens.size());
+		tokens.add(token);
+		return this;
+	}
+
+	/**
+	 * @param regex 正则表达式，语法见Nfa
+	 * @param token 词法单元编号
+	 * @throws IllegalArgumentException 正则表达式有误
+	 */
+	public LexerBuilder addPattern(String regex, int token) {
+		nfa.addPattern(regex, tokens.size());
+		tokens.add(token);
+		return this;
+	}
+
+	/**
+	 * 以正则表达式匹配文法中的终结符，如 addPattern("num", "[0-9]+")，需由fromGrammar()或fromTerminals()创建
+	 */
+	public LexerBuilder addPattern(String terminal, String regex) {
+		int id = terminalIds.applyAsInt(terminal);
+		if (id < 0) throw new IllegalArgumentException(terminal + " is not a terminal of the grammar");
+		return addPattern(regex, id);
+	}
+
+	/**
+	 * 匹配的内容被跳过，如空白与注释
+	 */
+	public LexerBuilder ignore(String regex) {
+		return addPattern(regex, Lexer.SKIP);
+	}
+
+	public Lexer build() {
+		int[] classMap = new int[Nfa.MaxChar + 1];
+		int classCount = partition(classMap);
+
+		// 子集构造
+		List<BitSet> states = new ArrayList<>();
+		Map<BitSet, Integer> index = new HashMap<>();
+		List<int[]> transitions = new ArrayList<>();
+		int[] representative = representatives(classMap, classCount);
+
+		BitSet start = closure(single(nfa.start));
+		states.add(start);
+		index.put(start, 0);
+		for (int s = 0; s < states.size(); s++) {
+			int[] row = new int[classCount];
+			for (int c = 0; c < classCount; c++) {
+				BitSet target = move(states.get(s), representative[c]);
+				if (target.isEmpty()) {
+					row[c] = -1;
+					continue;
+				}
+				target = closure(target);
+				Integer id = index.get(target);
+				if (id == null) {
+					id = states.size();
+					states.add(target);
+					index.put(target, id);
+				}
+				row[c] = id;
+			}
+			transitions.add(row);
+		}
+
+		int[] accepts = new int[states.size()];
+		for (int s = 0; s < accepts.length; s++) accepts[s] = acceptRule(states.get(s));
+
+		return minimize(transitions, accepts, classMap, classCount);
+	}
+
+	/**
+	 * 按边的区间端点划分字符等价类
+	 * @return 等价类个数，类0为不出现在任何边上的字符
+	 */
+	private int partition(int[] classMap) {
+		TreeSet<Integer> bounds = new TreeSet<>();
+		for (List<int[]> list : nfa.edges) {
+			for (int[] edge : list) {
+				bounds.add(edge[0]);
+				bounds.add(edge[1] + 1);
+			}
+		}
+
+		// 相邻端点之间的字符属于同一类，与所有边都不相交的区间归入类0
+		int classCount = 1;
+		Integer[] points = bounds.toArray(new Integer[0]);
+		for (int i = 0; i + 1 < points.length; i++) {
+			int lo = points[i];
+			int hi = points[i + 1] - 1;
+			if (!covered(lo)) continue;
+			for (int c = lo; c <= hi; c++) classMap[c] = classCount;
+			classCount++;
+		}
+		return classCount;
+	}
+
+	private boolean covered(int c) {
+		for (List<int[]> list : nfa.edges) {
+			for (int[] edge : list) {
+				if (edge[0] <= c && c <= edge[1]) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return 每个等价类中的一个字符，类0为-1
+	 */
+	private static int[] representatives(int[] classMap, int classCount) {
+		int[] result = new int[classCount];
+		Arrays.fill(result, -1);
+		for (int c = classMap.length - 1; c >= 0; c--) {
+			if (classMap[c] != 0) result[classMap[c]] = c;
+		}
+		return result;
+	}
+
+	private static BitSet single(int state) {
+		BitSet set = new BitSet();
+		set.set(state);
+		return set;
+	}
+
+	private BitSet closure(BitSet states) {
+		BitSet result = (BitSet) states.clone();
+		Deque<Integer> stack = new ArrayDeque<>();
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) stack.push(s);
+
+		while (!stack.isEmpty()) {
+			for (int next : nfa.epsilons.get(stack.pop())) {
+				if (!result.get(next)) {
+					result.set(next);
+					stack.push(next);
+				}
+			}
+		}
+		return result;
+	}
+
+	private BitSet move(BitSet states, int c) {
+		BitSet result = new BitSet();
+		if (c < 0) return result;
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+			for (int[] edge : nfa.edges.get(s)) {
+				if (edge[0] <= c && c <= edge[1]) result.set(edge[2]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return 状态集中优先级最高（编号最小）的接受规则，没有时为-1
+	 */
+	private int acceptRule(BitSet states) {
+		int rule = -1;
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+			int accept = nfa.accepts.get(s);
+			if (accept >= 0 && (rule < 0 || accept < rule)) rule = accept;
+		}
+		return rule;
+	}
+
+	/**
+	 * Hopcroft最小化，状态n为死状态
+	 */
+	private Lexer minimize(List<int[]> transitions, int[] acceptRules, int[] classMap, int classCount) {
+		int n = transitions.size() + 1;
+		int dead = n - 1;
+		int[][] delta = new int[n][];
+		for (int s = 0; s < dead; s++) {
+			delta[s] = transitions.get(s).clone();
+			for (int c = 0; c < classCount; c++) {
+				if (delta[s][c] < 0) delta[s][c] = dead;
+			}
+		}
+		delta[dead] = new int[classCount];
+		Arrays.fill(delta[dead], dead);
+
+		// 逆转换，inverse[c][t]为经过类c到达t的状态
+		int[][][] inverse = new int[classCount][n][];
+		for (int c = 0; c < classCount; c++) {
+			int[] count = new int[n];
+			for (int s = 0; s < n; s++) count[delta[s][c]]++;
+			for (int t = 0; t < n; t++) inverse[c][t] = new int[count[t]];
+			Arrays.fill(count, 0);
+			for (int s = 0; s < n; s++) {
+				int t = delta[s][c];
+				inverse[c][t][count[t]++] = s;
+			}
+		}
+
+		// 可细分的划分：elements按块连续存放，块b为 elements[first[b], end[b])
+		int[] elements = new int[n];
+		int[] location = new int[n];
+		int[] blockOf = new int[n];
+		int[] first = new int[n];
+		int[] end = new int[n];
+		int[] marked = new int[n];
+		int blockCount = 0;
+
+		// 初始划分：按接受的规则分块，不接受的状态与死状态在同一块
+		Map<Integer, List<Integer>> groups = new TreeMap<>();
+		for (int s = 0; s < n; s++) {
+			int rule = s == dead ? -1 : acceptRules[s];
+			groups.computeIfAbsent(rule, key -> new ArrayList<>()).add(s);
+		}
+		int position = 0;
+		for (List<Integer> group : groups.values()) {
+			first[blockCount] = position;
+			for (int s : group) {
+				elements[position] = s;
+				location[s] = position++;
+				blockOf[s] = blockCount;
+			}
+			end[blockCount++] = position;
+		}
+
+		Deque<int[]> work = new ArrayDeque<>();
+		Set<Long> inWork = new HashSet<>();
+		for (int b = 0; b < blockCount; b++) {
+			for (int c = 0; c < classCount; c++) {
+				work.add(new int[]{b, c});
+				inWork.add((long) b * classCount + c);
+			}
+		}
+
+		List<Integer> touched = new ArrayList<>();
+		while (!work.isEmpty()) {
+			int[] splitter = work.poll();
+			int a = splitter[0];
+			int c = splitter[1];
+			inWork.remove((long) a * classCount + c);
+
+			// 标记经过类c能到达块a的状态，移到所在块的前部
+			int[] members = Arrays.copyOfRange(elements, first[a], end[a]);
+			for (int t : members) {
+				for (int s : inverse[c][t]) {
+					int b = blockOf[s];
+					int target = first[b] + marked[b];
+					if (location[s] < target) continue;
+					if (marked[b] == 0) touched.add(b);
+
+					int other = elements[target];
+					elements[target] = s;
+					elements[location[s]] = other;
+					location[other] = location[s];
+					location[s] = target;
+					marked[b]++;
+				}
+			}
+
+			for (int b : touched) {
+				int count = marked[b];
+				marked[b] = 0;
+				if (count == end[b] - first[b]) continue;
+
+				// 被标记的部分分出为新块
+				int nb = blockCount++;
+				first[nb] = first[b];
+				end[nb] = first[b] + count;
+				first[b] = end[nb];
+				for (int i = first[nb]; i < end[nb]; i++) blockOf[elements[i]] = nb;
+
+				for (int d = 0; d < classCount; d++) {
+					if (inWork.contains((long) b * classCount + d)) {
+						work.add(new int[]{nb, d});
+						inWork.add((long) nb * classCount + d);
+					} else {
+						int smaller = end[nb] - first[nb] <= end[b] - first[b] ? nb : b;
+						work.add(new int[]{smaller, d});
+						inWork.add((long) smaller * classCount + d);
+					}
+				}
+			}
+			touched.clear();
+		}
+
+		// 从开始状态广度优先给块编号，死状态所在的块不输出
+		int deadBlock = blockOf[dead];
+		int[] number = new int[blockCount];
+		Arrays.fill(number, -1);
+		List<Integer> order = new ArrayList<>();
+		number[blockOf[0]] = 0;
+		order.add(blockOf[0]);
+		for (int i = 0; i < order.size(); i++) {
+			int s = elements[first[order.get(i)]];
+			for (int c = 0; c < classCount; c++) {
+				int b = blockOf[delta[s][c]];
+				if (b == deadBlock || number[b] >= 0) continue;
+				number[b] = order.size();
+				order.add(b);
+			}
+		}
+
+		int[] table = new int[order.size() * classCount];
+		int[] accepts = new int[order.size()];
+		for (int i = 0; i < order.size(); i++) {
+			int s = elements[first[order.get(i)]];
+			int rule = s == dead ? -1 : acceptRules[s];
+			accepts[i] = rule < 0 ? Lexer.NONE : tokens.get(rule);
+			for (int c = 0; c < classCount; c++) {
+				int b = blockOf[delta[s][c]];
+				table[i * classCount + c] = b == deadBlock ? -1 : number[b];
+			}
+		}
+
+		char[] compactMap = new char[classMap.length];
+		for (int c = 0; c < classMap.length; c++) compactMap[c] = (char) classMap[c];
+		return new Lexer(compactMap, classCount, table, accepts);
+	}
+}
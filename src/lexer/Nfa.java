@@ -0,0 +1,242 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thompson构造的NFA，由LexerBuilder使用
+ *
+ * 边以字符区间 [lo, hi] 表示，字符'\0'是BufferIO的EOF标记，任何边都不包含它。
+ * 每条规则的接受状态记录规则编号，规则编号越小优先级越高。
+ *
+ * 正则表达式支持：
+ *  连接、选择 |、闭包 * + ?、分组 ()、任意字符 .、
+ *  字符类 [a-z0-9_]、[^...]，转义 \d \w \s 以及 \ 加任意字符表示该字符本身。
+ */
+class Nfa {
+	static final char MinChar = 1;
+	static final char MaxChar = Character.MAX_VALUE;
+
+	// 状态 -> 边 {lo, hi, 目标状态}
+	final List<List<int[]>> edges = new ArrayList<>();
+	// 状态 -> ε边的目标状态
+	final List<List<Integer>> epsilons = new ArrayList<>();
+	// 状态 -> 接受的规则编号，不接受为-1
+	final List<Integer> accepts = new ArrayList<>();
+	final int start;
+
+	Nfa() {
+		start = newState();
+	}
+
+	int newState() {
+		edges.add(new ArrayList<>());
+		epsilons.add(new ArrayList<>());
+		accepts.add(-1);
+		return edges.size() - 1;
+	}
+
+	int size() {
+		return edges.size();
+	}
+
+	private void edge(int from, int lo, int hi, int to) {
+		edges.get(from).add(new int[]{lo, hi, to});
+	}
+
+	private void epsilon(int from, int to) {
+		epsilons.get(from).add(to);
+	}
+
+	/**
+	 * 添加一条规则，从开始状态以ε边连接
+	 */
+	private void addRule(int[] fragment, int rule) {
+		epsilon(start, fragment[0]);
+		accepts.set(fragment[1], rule);
+	}
+
+	void addLiteral(String text, int rule) {
+		int begin = newState();
+		int end = begin;
+		for (char c : text.toCharArray()) {
+			int next = newState();
+			edge(end, c, c, next);
+			end = next;
+		}
+		addRule(new int[]{begin, end}, rule);
+	}
+
+	void addPattern(String regex, int rule) {
+		RegexParser parser = new RegexParser(regex);
+		int[] fragment = parser.parseAlternation();
+		if (parser.pos != regex.length()) throw parser.error("unexpected ')'");
+		addRule(fragment, rule);
+	}
+
+	/**
+	 * 递归下降解析正则表达式，每个方法返回片段 {开始状态, 结束状态}
+	 */
+	private class RegexParser {
+		final String regex;
+		int pos = 0;
+
+		RegexParser(String regex) {
+			this.regex = regex;
+		}
+
+		int[] parseAlternation() {
+			int[] left = parseConcatenation();
+			if (!peek('|')) return left;
+
+			int begin = newState();
+			int end = newState();
+			epsilon(begin, left[0]);
+			epsilon(left[1], end);
+			while (peek('|')) {
+				pos++;
+				int[] right = parseConcatenation();
+				epsilon(begin, right[0]);
+				epsilon(right[1], end);
+			}
+			return new int[]{begin, end};
+		}
+
+		int[] parseConcatenation() {
+			int begin = newState();
+			int end = begin;
+			while (pos < regex.length() && !peek('|') && !peek(')')) {
+				int[] next = parseRepetition();
+				epsilon(end, next[0]);
+				end = next[1];
+			}
+			return new int[]{begin, end};
+		}
+
+		int[] parseRepetition() {
+			int[] atom = parseAtom();
+			while (pos < regex.length()) {
+				char c = regex.charAt(pos);
+				if (c != '*' && c != '+' && c != '?') break;
+				pos++;
+
+				int begin = newState();
+				int end = newState();
+				epsilon(begin, atom[0]);
+				epsilon(atom[1], end);
+				if (c != '+') epsilon(begin, end);
+				if (c != '?') epsilon(atom[1], atom[0]);
+				atom = new int[]{begin, end};
+			}
+			return atom;
+		}
+
+		int[] parseAtom() {
+			if (pos >= regex.length()) throw error("unexpected end");
+			char c = regex.charAt(pos++);
+
+			if (c == '(') {
+				int[] inner = parseAlternation();
+				if (!peek(')')) throw error("missing ')'");
+				pos++;
+				return inner;
+			}
+
+			List<int[]> ranges = new ArrayList<>();
+			if (c == '[') {
+				parseClass(ranges);
+			} else if (c == '.') {
+				ranges.add(new int[]{MinChar, MaxChar});
+			} else if (c == '\\') {
+				parseEscape(ranges);
+			} else if (c == '*' || c == '+' || c == '?' || c == ')' || c == '|') {
+				throw error("unexpected '" + c + "'");
+			} else {
+				ranges.add(new int[]{c, c});
+			}
+
+			int begin = newState();
+			int end = newState();
+			for (int[] range : ranges) {
+				int lo = Math.max(range[0], MinChar);
+				if (lo <= range[1]) edge(begin, lo, range[1], end);
+			}
+			return new int[]{begin, end};
+		}
+
+		void parseClass(List<int[]> ranges) {
+			boolean negate = peek('^');
+			if (negate) pos++;
+
+			List<int[]> items = new ArrayList<>();
+			while (true) {
+				if (pos >= regex.length()) throw error("missing ']'");
+				char c = regex.charAt(pos++);
+				if (c == ']' && !items.isEmpty()) break;
+
+				if (c == '\\') {
+					parseEscape(items);
+					continue;
+				}
+				if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+					char hi = regex.charAt(pos + 1);
+					pos += 2;
+					if (hi < c) throw error("bad range " + c + "-" + hi);
+					items.add(new int[]{c, hi});
+				} else {
+					items.add(new int[]{c, c});
+				}
+			}
+
+			if (!negate) {
+				ranges.addAll(items);
+				return;
+			}
+			// 取补集
+			items.sort((a, b) -> a[0] - b[0]);
+			int lo = MinChar;
+			for (int[] item : items) {
+				if (item[0] > lo) ranges.add(new int[]{lo, item[0] - 1});
+				lo = Math.max(lo, item[1] + 1);
+			}
+			if (lo <= MaxChar) ranges.add(new int[]{lo, MaxChar});
+		}
+
+		void parseEscape(List<int[]> ranges) {
+			if (pos >= regex.length()) throw error("dangling '\\'");
+			char c = regex.charAt(pos++);
+			switch (c) {
+				case 'd':
+					ranges.add(new int[]{'0', '9'});
+					break;
+				case 'w':
+					ranges.add(new int[]{'a', 'z'});
+					ranges.add(new int[]{'A', 'Z'});
+					ranges.add(new int[]{'0', '9'});
+					ranges.add(new int[]{'_', '_'});
+					break;
+				case 's':
+					ranges.add(new int[]{' ', ' '});
+					ranges.add(new int[]{'\t', '\n'});
+					ranges.add(new int[]{'\r', '\r'});
+					break;
+				case 'n':
+					ranges.add(new int[]{'\n', '\n'});
+					break;
+				case 't':
+					ranges.add(new int[]{'\t', '\t'});
+					break;
+				default:
+					ranges.add(new int[]{c, c});
+			}
+		}
+
+		boolean peek(char c) {
+			return pos < regex.length() && regex.charAt(pos) == c;
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("regex /" + regex + "/ at " + pos + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package lexer;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+import parser.TokenSource;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * 以Lexer从BufferIO中读取词法单元，每个词法单元表示为 (终结符编号, 偏移量, 长度)，不复制字符
+ *
+ * nextToken()之后可以通过getTokenOffset()、getTokenLength()取得当前词法单元的位置，
+ * 需要文本时getTokenText()返回缓冲区上的视图；read()把一批记录写入调用者提供的int[]，可以重复使用。
+ * 不查看文本时，每个词法单元不分配任何对象。
+ * 词素与最长匹配多读的字符总长必须小于BufferIO的缓冲区大小，否则词素的开头可能已被覆盖。
+ */
+public class TokenStream implements TokenSource {
+	// 记录中各字段的下标
+	public static final int ID = 0;
+	public static final int OFFSET = 1;
+	public static final int LENGTH = 2;
+	public static final int RecordSize = 3;
+
+	private final Lexer lexer;
+	private final BufferIO buffer;
+
+	private int token = -1;
+	private int tokenOffset = 0;
+	private int tokenLength = 0;
+
+	public TokenStream(Lexer lexer, BufferIO buffer) {
+		this.lexer = lexer;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * 分析字符串，缓冲区大小按输入长度分配，不超过BufferIO.DefaultBufferSize
+	 */
+	public static TokenStream of(Lexer lexer, String input) {
+		int bufferSize = Math.min(BufferIO.DefaultBufferSize, input.length() + 2);
+		BufferIO buffer = new BufferIO.Builder().setReader(new StringReader(input)).setBufferSize(bufferSize).build();
+		return new TokenStream(lexer, buffer);
+	}
+
+	/**
+	 * 换成新的输入从头读取，BufferIO的缓冲区重复使用
+	 */
+	public TokenStream reset(Reader reader) {
+		buffer.reopen(reader);
+		token = -1;
+		tokenOffset = 0;
+		tokenLength = 0;
+		return this;
+	}
+
+	@Override
+	public int nextToken() {
+		token = lexer.nextToken(buffer);
+		tokenOffset = buffer.getMarkOffset();
+		tokenLength = buffer.offset() - tokenOffset;
+		return token;
+	}
+
+	/**
+	 * 读取最多maxTokens个词法单元，第i个记录位于 records[i * RecordSize]，读到SymbolTable.END后停止
+	 * @param records 长度至少为 maxTokens * RecordSize
+	 * @return 写入的记录数，包括END
+	 */
+	public int read(int[] records, int maxTokens) {
+		int count = 0;
+		while (count < maxTokens) {
+			int id = nextToken();
+			int base = count++ * RecordSize;
+			records[base + ID] = id;
+			records[base + OFFSET] = tokenOffset;
+			records[base + LENGTH] = tokenLength;
+			if (id == SymbolTable.END) break;
+		}
+		return count;
+	}
+
+	public int getToken() {
+		return token;
+	}
+
+	public int getTokenOffset() {
+		return tokenOffset;
+	}
+
+	public int getTokenLength() {
+		return tokenLength;
+	}
+
+	/**
+	 * @return 当前词法单元的文本视图，在下一次nextToken()之前有效
+	 */
+	public CharSequence getTokenText() {
+		return buffer.text(tokenOffset, tokenLength);
+	}
+
+	/**
+	 * read()得到的记录的文本视图，只有仍在BufferIO缓冲区中的字符可以访问，
+	 * 即距离当前位置不超过一个缓冲区大小的记录
+	 * @throws IndexOutOfBoundsException 访问的字符已经不在缓冲区中
+	 */
+	public CharSequence text(int[] records, int index) {
+		int base = index * RecordSize;
+		return buffer.text(records[base + OFFSET], records[base + LENGTH]);
+	}
+}
@@ -2,6 +2,8 @@ package ll;
 
 import algorithm.SelectSet;
 import cfg.CFG;
+import cfg.SymbolTable;
+import cfg.production.CompactProduction;
 import cfg.production.Production;
 import cfg.production.SubItem;
 import cfg.production.SubItemType;
@@ -11,8 +13,13 @@ import fout.Fout;
 import fout.attr.ColumnAttr;
 import fout.attr.FoutGravity;
 import logger.Log;
+import table.Algorithm;
+import table.TableImage;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -21,27 +28,26 @@ import java.util.Stack;
  */
 public class LLOne {
 
-	// input
+	// input，execute()每次调用都重新打开
+	private String inputPath = Fin.getInstance().getProjectPath() + "/src/data/input/input.i";
 	private BufferIO buffer;
 
 	private CFG cfg;
 	private Map<String, Map<String, Production>> selectSet;
 
-	private Stack<SubItem> grammarStack;
+	private Stack<SubItem> grammarStack = new Stack<>();
 
 	public LLOne(CFG cfg, SelectSet selectSet) {
 		this.cfg = cfg;
 		this.selectSet = selectSet.getSelectSet();
-
-		Fin utils = Fin.getInstance();
-		this.buffer = new BufferIO.Builder().setFilePath(utils.getProjectPath() + "/src/data/input/input.i").build();
-
-		grammarStack = new Stack<>();
-		grammarStack.push(new SubItem("$", SubItemType.terminal));
-		grammarStack.push(new SubItem(cfg.getStartSymbol(), SubItemType.nonTerminal));
 	}
 
 	public void execute() {
+		// 上次分析被拒绝时栈中有剩余符号，每次都从 [$, 开始符号] 开始
+		grammarStack.clear();
+		grammarStack.push(new SubItem("$", SubItemType.terminal));
+		grammarStack.push(new SubItem(cfg.getStartSymbol(), SubItemType.nonTerminal));
+		buffer = openInput();
 		Fout fout = new Fout();
 		fout.addColumn(new ColumnAttr("Matched", FoutGravity.LEFT));
 		fout.addColumn(new ColumnAttr("Stack", FoutGravity.RIGHT));
@@ -92,6 +98,64 @@ public class LLOne {
 		fout.fout();
 	}
 
+	/**
+	 * 设置分析的输入文件，默认为 src/data/input/input.i
+	 */
+	public void setInputPath(String inputPath) {
+		this.inputPath = inputPath;
+	}
+
+	private BufferIO openInput() {
+		return new BufferIO.Builder().setFilePath(inputPath).build();
+	}
+
+	/**
+	 * 生成可写入缓存的预测分析表，产生式按文法中的顺序编号
+	 * @param grammarHash 文法内容的哈希，见TableCache.hash()
+	 */
+	public TableImage toTableImage(byte[] grammarHash) {
+		cfg.internSymbols();
+		SymbolTable symbolTable = cfg.getSymbolTable();
+
+		List<CompactProduction> productions = new ArrayList<>();
+		Map<Production, Integer> productionIds = new IdentityHashMap<>();
+		for (var group : cfg.getProductionGroupMap().values()) {
+			for (Production production : group.getProductions()) {
+				productionIds.put(production, productions.size());
+				productions.add(new CompactProduction(productions.size(), production));
+			}
+		}
+
+		int terminalCount = symbolTable.getTerminalCount();
+		int nonTerminalCount = symbolTable.getNonTerminalCount();
+		int[] predict = new int[nonTerminalCount * terminalCount];
+		for (var row : selectSet.entrySet()) {
+			int nonTerminal = symbolTable.getNonTerminalId(row.getKey());
+			for (var cell : row.getValue().entrySet()) {
+				int terminal = symbolTable.getTerminalId(cell.getKey());
+				if (nonTerminal < 0 || terminal < 0) continue;
+				predict[nonTerminal * terminalCount + terminal] = productionIds.get(cell.getValue()) + 1;
+			}
+		}
+
+		int[] heads = new int[productions.size()];
+		int[][] bodies = new int[productions.size()][];
+		for (int i = 0; i < bodies.length; i++) {
+			CompactProduction production = productions.get(i);
+			heads[i] = production.getHeadId();
+			bodies[i] = new int[production.length()];
+			for (int pos = 0; pos < production.length(); pos++) bodies[i][pos] = production.getSymbol(pos);
+		}
+
+		String[] terminals = new String[terminalCount];
+		for (int i = 0; i < terminalCount; i++) terminals[i] = symbolTable.getTerminal(i);
+		String[] nonTerminals = new String[nonTerminalCount];
+		for (int i = 0; i < nonTerminalCount; i++) nonTerminals[i] = symbolTable.getNonTerminal(i);
+
+		return new TableImage(Algorithm.LL1, grammarHash, terminals, nonTerminals, heads, bodies,
+				nonTerminalCount, cfg.getStartSymbolId(), predict, new int[0]);
+	}
+
 	public void recordProcess(Fout fout, String matched, String morpheme, String action) {
 		StringBuilder stack = new StringBuilder();
 		for (SubItem subItem : grammarStack) {
@@ -109,7 +173,7 @@ public class LLOne {
 		}
 
 		while (true) {
-			if (BufferIO.stopLexicalAnalysis) break;
+			if (buffer.isStopLexicalAnalysis()) break;
 
 			c = buffer.nextChar();
 			if (c == ' ' || c == '\t'  || c == '\n') break;
@@ -0,0 +1,137 @@
+package lr;
+
+import algorithm.FirstSet;
+import cfg.CFG;
+import cfg.SymbolTable;
+import cfg.production.CompactProduction;
+import cfg.production.Production;
+import cfg.production.ProductionGroup;
+import slr.ProductionIdGenerate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LR(1)闭包模板，每个非终结符只计算一次
+ *
+ * 对项 [A -> α·Bβ, L]，令 L' = First(β) ∪ (β能推导出ε ? L : ∅)，
+ * 闭包中加入的每个项 [X -> ·γ, M] 都满足 M = spontaneous ∪ (propagate ? L' : ∅)，
+ * 其中spontaneous（自生lookhead）与propagate（是否继承L'）只与B和X有关，与L'无关。
+ * 所以对每个B预先求出 (产生式编号, spontaneous, propagate) 的列表，
+ * 求项集闭包时直接套用模板，不需要再逐项展开。
+ * 模板缓存是线程安全的，并行构造项集族时各线程共用。
+ */
+public class ClosureTemplates {
+
+	/**
+	 * 闭包中的一个产生式，·在最左边
+	 */
+	public static class Template {
+		private final int productionId;
+		private final BitSet spontaneous;
+		private final boolean propagate;
+
+		private Template(int productionId, BitSet spontaneous, boolean propagate) {
+			this.productionId = productionId;
+			this.spontaneous = spontaneous;
+			this.propagate = propagate;
+		}
+
+		public int getProductionId() {
+			return productionId;
+		}
+
+		/**
+		 * @return 自生lookhead（终结符编号位集），不要修改返回值
+		 */
+		public BitSet getSpontaneous() {
+			return spontaneous;
+		}
+
+		public boolean isPropagate() {
+			return propagate;
+		}
+	}
+
+	private final ProductionIdGenerate idGenerate;
+	private final FirstSet firstSet;
+	private final CFG cfg;
+
+	// 非终结符编号 -> 闭包模板，未计算时为null
+	private final Map<Integer, List<Template>> templates = new ConcurrentHashMap<>();
+
+	public ClosureTemplates(ProductionIdGenerate idGenerate, FirstSet firstSet) {
+		this.idGenerate = idGenerate;
+		this.firstSet = firstSet;
+		this.cfg = idGenerate.getCfg();
+	}
+
+	/**
+	 * @param nonTerminalId 非终结符编号
+	 * @return 该非终结符的闭包模板，按广度优先的展开顺序排列
+	 */
+	public List<Template> getTemplates(int nonTerminalId) {
+		return templates.computeIfAbsent(nonTerminalId, this::calculationTemplates);
+	}
+
+	/**
+	 * 对从B可以到达的每个非终结符X，求出 spontaneous[X] 与 propagate[X]，不动点迭代：
+	 *  X -> Y δ，Y为非终结符时，spontaneous[Y] ∪= First(δ)，
+	 *  如果δ能推导出ε，spontaneous[Y] ∪= spontaneous[X]，propagate[Y] |= propagate[X]
+	 */
+	private List<Template> calculationTemplates(int start) {
+		Map<Integer, BitSet> spontaneous = new LinkedHashMap<>();
+		BitSet propagate = new BitSet();
+
+		spontaneous.put(start, new BitSet());
+		propagate.set(start);
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			// 遍历过程中可能加入新的非终结符，所以每一轮按当前的副本遍历
+			for (int x : new ArrayList<>(spontaneous.keySet())) {
+				ProductionGroup group = cfg.getProductionGroup(x);
+				if (group == null) continue;
+
+				for (Production p : group.getProductions()) {
+					CompactProduction production = idGenerate.getCompactProduction(p.getId());
+					int symbol = production.getSymbol(0);
+					if (!SymbolTable.isNonTerminal(symbol)) continue;
+
+					int y = SymbolTable.decodeNonTerminal(symbol);
+					BitSet dest = spontaneous.get(y);
+					if (dest == null) {
+						dest = new BitSet();
+						spontaneous.put(y, dest);
+						changed = true;
+					}
+
+					int before = dest.cardinality();
+					boolean nullable = firstSet.addFirst(production, 1, dest);
+					if (nullable) {
+						dest.or(spontaneous.get(x));
+						if (propagate.get(x) && !propagate.get(y)) {
+							propagate.set(y);
+							changed = true;
+						}
+					}
+					if (dest.cardinality() != before) changed = true;
+				}
+			}
+		}
+
+		List<Template> result = new ArrayList<>();
+		for (var entry : spontaneous.entrySet()) {
+			ProductionGroup group = cfg.getProductionGroup(entry.getKey());
+			if (group == null) continue;
+
+			boolean isPropagate = propagate.get(entry.getKey());
+			for (Production p : group.getProductions()) {
+				result.add(new Template(p.getId(), entry.getValue(), isPropagate));
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+}
@@ -1,28 +1,35 @@
 package lr;
 
+import cfg.production.CompactProduction;
 import cfg.production.SubItem;
 import slr.ProductionIdGenerate;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 public class Item {
 	public static final char Point = '·';
 
 	// 产生式的编号
-	private int productionId;
+	private final int productionId;
 	// 每个项 · 的位置
-	private int pointPos;
+	private final int pointPos;
+	// 只由核心计算，lookhead合并后不变
+	private final int hash;
 	//
 	private ProductionIdGenerate productionIdGenerate;
+	// 数组形式的产生式，按下标访问
+	private CompactProduction production;
 
-	private Set<String> lookheads;
+	// 向前看符号，终结符编号的位集
+	private BitSet lookheads;
 
-	public Item(ProductionIdGenerate productionIdGenerate, int productionId, int pointPos, Set<String> lookheads) {
+	public Item(ProductionIdGenerate productionIdGenerate, int productionId, int pointPos, BitSet lookheads) {
 		this.productionIdGenerate = productionIdGenerate;
 		this.productionId = productionId;
 		this.pointPos = pointPos;
 		this.lookheads = lookheads;
+		this.production = productionIdGenerate.getCompactProduction(productionId);
+		this.hash = 31 * productionId + pointPos;
 	}
 
 	public int getPointPos() {
@@ -37,18 +44,32 @@ public class Item {
 		return productionIdGenerate.getProductionHead(this.productionId);
 	}
 
-	public Set<String> getLookheads() {
+	/**
+	 * @return 向前看符号（终结符编号位集），不要修改返回值，合并使用addLookheads()
+	 */
+	public BitSet getLookheads() {
 		return lookheads;
 	}
 
+	/**
+	 * 合并向前看符号
+	 * @return lookhead是否发生了变化
+	 */
+	public boolean addLookheads(BitSet other) {
+		int before = lookheads.cardinality();
+		lookheads.or(other);
+		return lookheads.cardinality() != before;
+	}
+
 	// 获取期望子项，即下一个需要匹配的符号
 	// 当要进行归约时（即没有期望子项）返回null，否则返回子项
 	public SubItem getExpectSubItem() {
-		if (pointPos >= productionIdGenerate.getProduction(productionId).getSubItems().size()) return null;
+		return production.getSubItem(pointPos);
+	}
 
-		SubItem subItem = productionIdGenerate.getExpectSubItem(productionId, pointPos);
-		if (subItem.getValue().equals("ε")) return null;
-		return subItem;
+	// 获取期望子项的符号编码，要进行归约时返回SymbolTable.EPSILON
+	public int getExpectSymbol() {
+		return production.getSymbol(pointPos);
 	}
 
 	/**
@@ -56,13 +77,22 @@ public class Item {
 	 * @return
 	 */
 	public SubItem getLookheadSubItem() {
-		if (pointPos + 1 >= productionIdGenerate.getProduction(productionId).getSubItems().size()) return null;
-		return productionIdGenerate.getExpectSubItem(productionId, pointPos + 1);
+		return production.getSubItem(pointPos + 1);
 	}
 
 	public SubItem getLookheadSubItem(int offset) {
-		if (pointPos + 1 + offset >= productionIdGenerate.getProduction(productionId).getSubItems().size()) return null;
-		return productionIdGenerate.getExpectSubItem(productionId, pointPos + 1 + offset);
+		return production.getSubItem(pointPos + 1 + offset);
+	}
+
+	public CompactProduction getProduction() {
+		return production;
+	}
+
+	/**
+	 * @return 核心 (产生式编号 << 32) | ·的位置
+	 */
+	public long getCore() {
+		return ((long) productionId << 32) | pointPos;
 	}
 
 	public boolean equalsCore(Item other) {
@@ -70,29 +100,38 @@ public class Item {
 				pointPos == other.pointPos;
 	}
 
+	/**
+	 * @return 项集中是否有核心与lookhead都相同的项
+	 */
 	public boolean include(ItemSet itemSet) {
-		for (Item lrItem : itemSet.getLrItems()) {
-			if (lrItem.equals(this)) return true;
-		}
-		return false;
+		Item other = itemSet.getItem(getCore());
+		return other != null && lookheads.equals(other.lookheads);
 	}
 
 	public boolean includeCore(ItemSet itemSet) {
-		for (Item lrItem : itemSet.getLrItems()) {
-			if (lrItem.equalsCore(this)) return true;
-		}
-		return false;
+		return itemSet.getItem(getCore()) != null;
 	}
 
+	/**
+	 * 核心相同时相等，不比较lookhead：lookhead在合并时会改变，放入哈希容器后相等关系不能随之改变
+	 * 需要比较lookhead时使用include()
+	 */
 	@Override
 	public boolean equals(Object obj) {
+		if (this == obj) return true;
 		if (obj instanceof Item) {
-			return (productionId == ((Item) obj).productionId &&
-					pointPos == ((Item) obj).pointPos &&
-					lookheads.containsAll(((Item) obj).lookheads) &&
-					((Item) obj).getLookheads().containsAll(lookheads));
+			return (hash == ((Item) obj).hash &&
+					productionId == ((Item) obj).productionId &&
+					pointPos == ((Item) obj).pointPos);
 		}
 		return false;
 	}
 
+	/**
+	 * 只由核心计算，合并lookhead不会改变哈希值
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
 }
@@ -1,6 +1,7 @@
 package lr;
 
 import algorithm.FirstSet;
+import cfg.SymbolTable;
 import cfg.production.Production;
 import cfg.production.ProductionGroup;
 import cfg.production.SubItem;
@@ -13,12 +14,14 @@ import slr.ProductionIdGenerate;
 import java.util.*;
 
 public class ItemSet {
-	public static int itemSetIdCount = -1;
-
 	// 项集的唯一标号
 	private int id;
-	// 项集
+	// 项集，每个核心只有一项
 	private Set<Item> lrItems;
+	// 核心 -> 项
+	private Map<Long, Item> coreIndex;
+	// 内核项（求闭包之前添加的项）核心的哈希值之和，与项的顺序无关，求闭包后不再改变
+	private int hash = 0;
 
 	private ProductionIdGenerate idGenerate;
 	private FirstSet firstSet;
@@ -29,14 +32,26 @@ public class ItemSet {
 	private Map<String, ItemSet> gotoTables = new HashMap<>();
 
 	public ItemSet(ProductionIdGenerate idGenerate, FirstSet firstSet) {
-		this.id = ++itemSetIdCount;
+		this.id = idGenerate.nextItemSetId();
 		this.idGenerate = idGenerate;
 		this.firstSet = firstSet;
 		this.lrItems = new LinkedHashSet<>();
+		this.coreIndex = new HashMap<>();
 	}
 
+	/**
+	 * 添加项，已有相同核心的项时合并lookhead
+	 */
 	public ItemSet addItem(Item item) {
+		Item exist = coreIndex.get(item.getCore());
+		if (exist != null) {
+			exist.addLookheads(item.getLookheads());
+			return this;
+		}
+
+		coreIndex.put(item.getCore(), item);
 		lrItems.add(item);
+		if (!isClosure) hash += item.hashCode();
 		return this;
 	}
 
@@ -46,19 +61,15 @@ public class ItemSet {
 	 * @return
 	 */
 	public ItemSet addItemCoreLookhead(Item item) {
-		boolean has = false;
-		for (Item lrItem : lrItems) {
-			if (lrItem.equalsCore(item)) {
-				lrItem.getLookheads().addAll(item.getLookheads());
-				has = true;
-				break;
-			}
-		}
+		return addItem(item);
+	}
 
-		if (!has) {
-			lrItems.add(item);
-		}
-		return this;
+	/**
+	 * @param core 核心 (产生式编号 << 32) | ·的位置
+	 * @return 该核心对应的项，没有时返回null
+	 */
+	public Item getItem(long core) {
+		return coreIndex.get(core);
 	}
 
 	/**
@@ -66,70 +77,47 @@ public class ItemSet {
 	 * B -> expectSubItem
 	 * β -> lookheadSubItem
 	 *
-	 * 如果β为非终结符，获取β的first集，然后设置新的item的第二分量是first成员；（自生lookhead）
-	 * 如果β为终结符，当此终结符不为ε时，不产生新的item，如果为ε，则继承a（继承lookhead）
+	 * 对每个内核项，令 L' = First(β) ∪ (β能推导出ε ? {a} : ∅)，
+	 * 然后套用B的闭包模板，相同产生式的lookhead合并（见ClosureTemplates）
 	 */
 	public void closure() {
+		closure(new ClosureTemplates(idGenerate, firstSet));
+	}
+
+	/**
+	 * @param templates 闭包模板，同一个项集族的项集共用，避免重复展开非终结符
+	 */
+	public void closure(ClosureTemplates templates) {
 		if (isClosure) return ;
 
-		Queue<Item> queue = new LinkedList<>(lrItems);
-
-		while (!queue.isEmpty()) {
-			Item item = queue.poll();
-
-			SubItem expect = item.getExpectSubItem();
-			if (expect != null) {
-				// 如果是终结符，跳过
-				if (expect.getType() == SubItemType.terminal) continue;
-
-				// 非终结符，获取该非终结符对应的产生式集，断言产生式不可能为null
-				ProductionGroup group = idGenerate.getCfg().getProductionGroupMap().get(
-						expect.getValue()
-				);
-				assert group != null;
-
-				// 对每个产生式遍历
-				SubItem lookhead = item.getLookheadSubItem();
-				Set<String> extend_lookhead = item.getLookheads();
-				for (Production production : group.getProductions()) {
-					Item newItem = null;
-
-					if (lookhead == null || lookhead.getValue().equals("ε")) {
-						// 继承lookhead
-						Set<String> new_extend = new HashSet<>(extend_lookhead);
-						newItem = new Item(idGenerate, production.getId(), 0, new_extend);
-					} else if (lookhead.getType() == SubItemType.nonTerminal) {
-						// 自生lookhead
-						// 获取first集
-						Set<String> first_lk = firstSet.getFirstSet().get(lookhead.getValue());
-						Set<String> new_first = new HashSet<>(first_lk);
-						newItem = new Item(idGenerate, production.getId(), 0, new_first);
-					} else if (lookhead.getType() == SubItemType.terminal) {
-						Set<String> set = new HashSet<>();
-						set.add(lookhead.getValue());
-						newItem = new Item(idGenerate, production.getId(), 0, set);
-					}
-
-					// 找一个相同核心的项，如果lookhead不同，则将lookhead加入
-					if (newItem != null) {
-						boolean newAdd = true;
-						for (Item lrItem : lrItems) {
-							if (lrItem.equalsCore(newItem)) {
-								lrItem.getLookheads().addAll(newItem.getLookheads());
-								newAdd = false;
-								break;
-							}
-						}
-						if (newAdd) {
-							queue.add(newItem);
-							lrItems.add(newItem);
-						}
-					}
-				}
+		// 产生式编号 -> lookhead（终结符编号位集），·都在最左边
+		Map<Integer, BitSet> closureItems = new LinkedHashMap<>();
+
+		for (Item item : lrItems) {
+			int expect = item.getExpectSymbol();
+			// 归约项或终结符，跳过
+			if (!SymbolTable.isNonTerminal(expect)) continue;
+
+			BitSet lookheads = new BitSet();
+			boolean nullable = firstSet.addFirst(item.getProduction(), item.getPointPos() + 1, lookheads);
+			if (nullable) {
+				lookheads.or(item.getLookheads());
+			}
+
+			for (ClosureTemplates.Template template : templates.getTemplates(SymbolTable.decodeNonTerminal(expect))) {
+				BitSet dest = closureItems.computeIfAbsent(template.getProductionId(), k -> new BitSet());
+				dest.or(template.getSpontaneous());
+				if (template.isPropagate()) dest.or(lookheads);
 			}
 		}
 
+		// 闭包项不计入哈希值，项集在求闭包之前已经放入项集族
 		isClosure = true;
+
+		// 开始项集的内核项·也在最左边，与其相同核心时addItem会合并lookhead
+		for (var entry : closureItems.entrySet()) {
+			addItem(new Item(idGenerate, entry.getKey(), 0, entry.getValue()));
+		}
 	}
 
 	/**
@@ -159,6 +147,9 @@ public class ItemSet {
 		return true;
 	}
 
+	/**
+	 * @return 项集，不要直接修改，添加项使用addItem()
+	 */
 	public Set<Item> getLrItems() {
 		return lrItems;
 	}
@@ -175,13 +166,38 @@ public class ItemSet {
 		return id;
 	}
 
+	/**
+	 * 两个项集的项（包括lookhead）完全相同时相等，与id和Goto表无关
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof ItemSet)) return false;
+
+		ItemSet other = (ItemSet) obj;
+		if (hash != other.hash || lrItems.size() != other.lrItems.size()) return false;
+		for (Item item : lrItems) {
+			if (!item.include(other)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 只由内核项的核心计算，求闭包增加的项与合并lookhead都不改变哈希值，
+	 * 所以项集放入哈希容器之后仍然可以求闭包；相等的项集内核相同，哈希值也相同
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
 	public void printItemSet() {
 		Fout fout = new Fout(ColumnAttr.qCreate("ItemSet", "Lookhead", "Goto"));
 		fout.setTableName("I" + id);
 
 		for (Item lrItem : lrItems) {
 			fout.insert(getProductionStr(lrItem.getProductionHead(), idGenerate.getSubItems(lrItem.getProductionId()), lrItem.getPointPos()));
-			fout.insert(lrItem.getLookheads());
+			fout.insert(idGenerate.getCfg().getSymbolTable().toTerminalNames(lrItem.getLookheads()));
 
 			if (lrItem.getExpectSubItem() == null) fout.insert("");
 			else fout.insert("Goto -> " + gotoTables.get(lrItem.getExpectSubItem().getValue()).getId());
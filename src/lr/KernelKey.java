@@ -0,0 +1,74 @@
+package lr;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * LR(1)项集内核的规范形式，用作项集族的哈希索引
+ *
+ * 内核项按 (产生式编号, ·的位置) 排序，每一项依次写入
+ *  产生式编号, ·的位置, lookhead个数, 排好序的lookhead终结符编号...
+ * 所以内核相同（与项的添加顺序无关）的两个项集得到相同的数组，哈希值只计算一次。
+ */
+public class KernelKey {
+	private final int[] codes;
+	private final int hash;
+
+	private KernelKey(int[] codes) {
+		this.codes = codes;
+		this.hash = Arrays.hashCode(codes);
+	}
+
+	public static KernelKey of(Collection<Item> kernelItems) {
+		Item[] items = kernelItems.toArray(new Item[0]);
+		Arrays.sort(items, (a, b) -> a.getProductionId() != b.getProductionId()
+				? Integer.compare(a.getProductionId(), b.getProductionId())
+				: Integer.compare(a.getPointPos(), b.getPointPos()));
+
+		int length = 0;
+		for (Item item : items) length += 3 + item.getLookheads().cardinality();
+
+		int[] codes = new int[length];
+		int pos = 0;
+		for (Item item : items) {
+			codes[pos++] = item.getProductionId();
+			codes[pos++] = item.getPointPos();
+			codes[pos++] = item.getLookheads().cardinality();
+
+			BitSet lookheads = item.getLookheads();
+			for (int t = lookheads.nextSetBit(0); t >= 0; t = lookheads.nextSetBit(t + 1)) codes[pos++] = t;
+		}
+		return new KernelKey(codes);
+	}
+
+	/**
+	 * 只取 (产生式编号, ·的位置) 的核心，不含lookhead，LALR按核心合并项集时使用
+	 */
+	public static KernelKey ofCore(Collection<Item> items) {
+		long[] cores = new long[items.size()];
+		int pos = 0;
+		for (Item item : items) cores[pos++] = ((long) item.getProductionId() << 32) | item.getPointPos();
+		Arrays.sort(cores);
+
+		int[] codes = new int[cores.length * 2];
+		for (int i = 0; i < cores.length; i++) {
+			codes[i * 2] = (int) (cores[i] >>> 32);
+			codes[i * 2 + 1] = (int) cores[i];
+		}
+		return new KernelKey(codes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof KernelKey)) return false;
+		KernelKey other = (KernelKey) obj;
+		return hash == other.hash && Arrays.equals(codes, other.codes);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -0,0 +1,98 @@
+package parser;
+
+import fin.BufferIO;
+import lexer.TokenStream;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 用同一个编译后的文法批量分析大量输入
+ *
+ * 每个工作线程持有自己的Parser与TokenStream，在多次parseAll()之间重复使用，
+ * 分析一个输入只创建一个StringReader，不创建BufferIO、栈、词素字符串或输出表格。
+ * 输入按块分配给工作线程，先完成的线程继续领取下一块，结果按输入顺序存放在BatchResult中。
+ * parseAll()不能被多个线程同时调用，用完后调用close()结束工作线程。
+ */
+public class BatchParser implements AutoCloseable {
+	// 每次领取的输入个数
+	private static final int BlockSize = 64;
+
+	private final CompiledGrammar grammar;
+	private final ExecutorService executor;
+	private final Worker[] workers;
+
+	public BatchParser(CompiledGrammar grammar, int workerCount) {
+		this.grammar = grammar;
+		this.executor = Executors.newFixedThreadPool(workerCount);
+		this.workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; i++) workers[i] = new Worker();
+	}
+
+	public BatchParser(CompiledGrammar grammar) {
+		this(grammar, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param inputs 输入由文法的词法分析器识别，单个词素不能超过BufferIO.DefaultBufferSize - 1个字符
+	 */
+	public BatchResult parseAll(Stream<String> inputs) {
+		return parseAll(inputs.collect(Collectors.toList()));
+	}
+
+	/**
+	 * @param inputs 输入，分析期间不能修改
+	 * @return 与inputs下标对应的结果
+	 */
+	public BatchResult parseAll(List<String> inputs) {
+		BatchResult result = new BatchResult(inputs.size());
+		AtomicInteger next = new AtomicInteger();
+
+		Future<?>[] futures = new Future<?>[workers.length];
+		for (int i = 0; i < workers.length; i++) {
+			Worker worker = workers[i];
+			futures[i] = executor.submit(() -> worker.run(inputs, next, result));
+		}
+
+		try {
+			for (Future<?> future : futures) future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("batch parse interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("batch parse failed", e.getCause());
+		}
+		return result;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private final class Worker {
+		private final Parser parser = grammar.newParser();
+		// 缓冲区为默认大小，每个输入通过reset()重复使用
+		private final TokenStream source = new TokenStream(grammar.getLexer(),
+				new BufferIO.Builder().setReader(new StringReader("")).build());
+
+		void run(List<String> inputs, AtomicInteger next, BatchResult result) {
+			int size = inputs.size();
+			int begin;
+			while ((begin = next.getAndAdd(BlockSize)) < size) {
+				int end = Math.min(size, begin + BlockSize);
+				for (int i = begin; i < end; i++) {
+					boolean accept = parser.parse(source.reset(new StringReader(inputs.get(i))), null);
+					result.set(i, accept, accept ? -1 : parser.getErrorToken());
+				}
+			}
+		}
+	}
+}
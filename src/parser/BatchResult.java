@@ -0,0 +1,40 @@
+package parser;
+
+/**
+ * 批量分析的结果，以基本类型数组存储，下标与输入对应
+ */
+public class BatchResult {
+	private final boolean[] accepted;
+	// 出错时的终结符编号，接受时为-1
+	private final int[] errorTokens;
+
+	BatchResult(int size) {
+		this.accepted = new boolean[size];
+		this.errorTokens = new int[size];
+	}
+
+	void set(int index, boolean accept, int errorToken) {
+		accepted[index] = accept;
+		errorTokens[index] = errorToken;
+	}
+
+	public int size() {
+		return accepted.length;
+	}
+
+	public boolean isAccepted(int index) {
+		return accepted[index];
+	}
+
+	public int getErrorToken(int index) {
+		return errorTokens[index];
+	}
+
+	public int getAcceptedCount() {
+		int count = 0;
+		for (boolean accept : accepted) {
+			if (accept) count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,62 @@
+package parser;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * 从BufferIO中读取以空白分隔的词素，并转换为终结符编号
+ */
+public class BufferTokenSource implements TokenSource {
+	private final BufferIO buffer;
+	// 词素 -> 终结符编号，不是终结符时返回负数
+	private final ToIntFunction<String> terminals;
+	private boolean finished = false;
+	// 最近读取的词素
+	private String lexeme = "";
+
+	public BufferTokenSource(BufferIO buffer, SymbolTable symbolTable) {
+		this(buffer, symbolTable::getTerminalId);
+	}
+
+	public BufferTokenSource(BufferIO buffer, ToIntFunction<String> terminals) {
+		this.buffer = buffer;
+		this.terminals = terminals;
+	}
+
+	/**
+	 * @return 最近一次nextToken()读取的词素，输入结束时为空字符串
+	 */
+	public String getLexeme() {
+		return lexeme;
+	}
+
+	@Override
+	public int nextToken() {
+		if (finished) {
+			lexeme = "";
+			return SymbolTable.END;
+		}
+
+		char c = buffer.nextChar();
+		if (c == ' ' || c == '\t' || c == '\n') {
+			while (c == ' ' || c == '\t' || c == '\n') c = buffer.nextChar();
+			buffer.nextMorpheme();
+		}
+
+		while (true) {
+			if (buffer.isStopLexicalAnalysis()) break;
+
+			c = buffer.nextChar();
+			if (c == ' ' || c == '\t' || c == '\n') break;
+		}
+
+		lexeme = buffer.nextMorpheme();
+		if (buffer.isStopLexicalAnalysis() && lexeme.isEmpty()) {
+			finished = true;
+			return SymbolTable.END;
+		}
+		return terminals.applyAsInt(lexeme);
+	}
+}
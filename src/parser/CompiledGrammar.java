@@ -0,0 +1,141 @@
+package parser;
+
+import algorithm.FirstSet;
+import algorithm.FollowSet;
+import algorithm.LeftCommonFactor;
+import algorithm.LeftRecursion;
+import algorithm.SelectSet;
+import cfg.CFG;
+import cfg.CFGBuilder;
+import lalr.LALR;
+import lexer.Lexer;
+import lexer.LexerBuilder;
+import ll.LLOne;
+import lr.LR;
+import slr.SLR;
+import table.Algorithm;
+import table.CompiledTable;
+import table.MappedParseTable;
+import table.TableCache;
+import table.TableImage;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 编译后的文法，只包含分析表与符号，与CFG、项集族无关
+ *
+ * 构造完成后不可变，可以被任意多个线程共享；每个分析请求通过newParser()取得自己的Parser，
+ * Parser只持有分析栈，创建代价很小。
+ */
+public final class CompiledGrammar {
+	private final CompiledTable table;
+	private final Lexer lexer;
+
+	/**
+	 * 词法分析器以所有终结符为字面量，并忽略空白
+	 */
+	public CompiledGrammar(CompiledTable table) {
+		this(table, Collections.emptyMap());
+	}
+
+	/**
+	 * 词法分析器以patterns中的正则表达式匹配对应的终结符，其余终结符为字面量，并忽略空白
+	 * @param patterns 终结符 -> 正则表达式，见LexerBuilder.fromTerminals()
+	 */
+	public CompiledGrammar(CompiledTable table, Map<String, String> patterns) {
+		this(table, LexerBuilder.fromTerminals(table.getTerminals(), patterns).build());
+	}
+
+	/**
+	 * @param lexer 输出的词法单元编号必须与分析表的终结符编号一致
+	 */
+	public CompiledGrammar(CompiledTable table, Lexer lexer) {
+		this.table = table;
+		this.lexer = lexer;
+	}
+
+	/**
+	 * 构造分析表，不输出构造过程
+	 * @param cfg 文法，不会被修改
+	 */
+	public static CompiledGrammar compile(CFG cfg, Algorithm algorithm) {
+		return compile(cfg, algorithm, Collections.emptyMap());
+	}
+
+	/**
+	 * @param patterns 以正则表达式匹配的终结符，如 number -> [0-9]+
+	 */
+	public static CompiledGrammar compile(CFG cfg, Algorithm algorithm, Map<String, String> patterns) {
+		// SLR、LR在构造时会修改传入的文法，先复制
+		return new CompiledGrammar(build(cfg.copy(), algorithm, null), patterns);
+	}
+
+	/**
+	 * 以内存映射方式打开文法文件对应的分析表缓存，缓存不存在或已失效时构造分析表并写入缓存
+	 * 分析表直接从映射的文件中读取，打开同一缓存的多个进程共享页缓存；缓存文件无法写入时使用堆上的分析表
+	 */
+	public static CompiledGrammar load(String cfgPath, Algorithm algorithm) {
+		return load(cfgPath, algorithm, Collections.emptyMap());
+	}
+
+	/**
+	 * @param patterns 以正则表达式匹配的终结符，词法分析器不写入缓存，每次加载时构造
+	 */
+	public static CompiledGrammar load(String cfgPath, Algorithm algorithm, Map<String, String> patterns) {
+		TableCache.TableBuilder builder = hash -> build(new CFGBuilder(cfgPath).build(), algorithm, hash);
+		return new CompiledGrammar(MappedParseTable.openOrBuild(cfgPath, algorithm, builder), patterns);
+	}
+
+	private static TableImage build(CFG cfg, Algorithm algorithm, byte[] grammarHash) {
+		switch (algorithm) {
+			case SLR:
+				SLR slr = new SLR(cfg, null, false);
+				slr.construct();
+				return slr.toTableImage(grammarHash);
+			case LR1:
+				LR lr = new LR(cfg, null, false);
+				lr.construct();
+				return lr.toTableImage(grammarHash);
+			case LALR:
+				LALR lalr = new LALR(cfg);
+				lalr.construct();
+				return lalr.toTableImage(grammarHash);
+			default:
+				// 提取左公因子，消除左递归，再求Select集
+				CFG copyCfg = cfg.copy();
+				copyCfg = new LeftCommonFactor(copyCfg).extract();
+				copyCfg = new LeftRecursion(copyCfg).eliminate();
+				FirstSet firstSet = new FirstSet(copyCfg);
+				FollowSet followSet = new FollowSet(copyCfg, firstSet);
+				LLOne ll = new LLOne(copyCfg, new SelectSet(copyCfg, firstSet, followSet));
+				return ll.toTableImage(grammarHash);
+		}
+	}
+
+	/**
+	 * @return 新的分析器，不能被多个线程同时使用
+	 */
+	public Parser newParser() {
+		return new Parser(this);
+	}
+
+	/**
+	 * @return 终结符编号，不存在时返回-1
+	 */
+	public int getTerminalId(String terminal) {
+		return table.getTerminalId(terminal);
+	}
+
+	public Lexer getLexer() {
+		return lexer;
+	}
+
+	public Algorithm getAlgorithm() {
+		return table.getAlgorithm();
+	}
+
+	public CompiledTable getTable() {
+		return table;
+	}
+}
@@ -0,0 +1,59 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型int的栈，不装箱，也不加锁
+ * 容量只会增长，clear()后可以重复使用
+ */
+public class IntStack {
+	private int[] elements;
+	private int size = 0;
+
+	public IntStack() {
+		this(16);
+	}
+
+	public IntStack(int capacity) {
+		this.elements = new int[Math.max(capacity, 1)];
+	}
+
+	public void push(int value) {
+		if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+		elements[size++] = value;
+	}
+
+	public int pop() {
+		return elements[--size];
+	}
+
+	/**
+	 * 一次弹出count个元素
+	 */
+	public void pop(int count) {
+		size -= count;
+	}
+
+	public int peek() {
+		return elements[size - 1];
+	}
+
+	/**
+	 * @param index 从栈底开始的下标
+	 */
+	public int get(int index) {
+		return elements[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
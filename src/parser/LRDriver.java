@@ -0,0 +1,98 @@
+package parser;
+
+import table.LRTable;
+import table.ParseTable;
+
+/**
+ * 移入-归约分析驱动程序
+ *
+ * 只依赖LRTable，稠密表与压缩表都可以使用。
+ * 状态栈为基本类型的IntStack，分析过程中每个词法单元不产生新的对象，也不输出分析过程，
+ * 归约交给ReduceCallback处理；需要输出分析过程时传入TraceCallback，见LRTrace。
+ * 同一个驱动程序可以重复调用parse()，但不能被多个线程同时使用。
+ */
+public class LRDriver {
+	private final LRTable table;
+	private final IntStack stateStack;
+
+	// 最近一次分析出错时的状态与终结符编号
+	private int errorState = -1;
+	private int errorToken = -1;
+
+	public LRDriver(LRTable table) {
+		this.table = table;
+		this.stateStack = new IntStack(64);
+	}
+
+	/**
+	 * @param source 词法单元来源
+	 * @param callback 归约回调，可以为null
+	 * @return 输入被接受时返回true，出错时返回false，出错位置见getErrorState()与getErrorToken()
+	 */
+	public boolean parse(TokenSource source, ReduceCallback callback) {
+		return parse(source, callback, null);
+	}
+
+	/**
+	 * @param trace 每个动作执行之前调用，可以为null
+	 */
+	public boolean parse(TokenSource source, ReduceCallback callback, TraceCallback trace) {
+		IntStack stack = stateStack;
+		stack.clear();
+		stack.push(table.getStartState());
+		errorState = -1;
+		errorToken = -1;
+
+		int token = source.nextToken();
+		while (true) {
+			int state = stack.peek();
+			int action = token < 0 ? ParseTable.ERROR : table.getAction(state, token);
+			int target = ParseTable.getTarget(action);
+			if (trace != null) trace.step(stack, token, action);
+
+			switch (ParseTable.getType(action)) {
+				case ParseTable.SHIFT:
+					stack.push(target);
+					token = source.nextToken();
+					break;
+				case ParseTable.REDUCE:
+					int length = table.getProductionLength(target);
+					int head = table.getProductionHead(target);
+					stack.pop(length);
+
+					int next = table.getGoto(stack.peek(), head);
+					// 只有稠密表会返回-1，压缩表返回默认目标，见LRTable
+					if (next < 0) {
+						if (trace != null) trace.step(stack, token, ParseTable.ERROR);
+						return error(stack.peek(), token);
+					}
+					stack.push(next);
+
+					if (callback != null) callback.reduce(target, head, length);
+					break;
+				case ParseTable.ACCEPT:
+					return true;
+				default:
+					return error(state, token);
+			}
+		}
+	}
+
+	private boolean error(int state, int token) {
+		this.errorState = state;
+		this.errorToken = token;
+		return false;
+	}
+
+	public int getErrorState() {
+		return errorState;
+	}
+
+	public int getErrorToken() {
+		return errorToken;
+	}
+
+	public LRTable getTable() {
+		return table;
+	}
+}
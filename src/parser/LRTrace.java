@@ -0,0 +1,105 @@
+package parser;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+import fout.Fout;
+import fout.attr.ColumnAttr;
+import fout.attr.FoutGravity;
+import slr.ProductionIdGenerate;
+import table.LRTable;
+import table.ParseTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LR类分析器的调试模式，在LRDriver上输出每一步的栈、符号、剩余输入与动作
+ *
+ * 自身作为词法单元来源，通过BufferTokenSource读取以空白分隔的词素，并记录剩余输入用于输出；
+ * 每次execute()使用新的LRDriver，可以重复调用。
+ */
+public class LRTrace implements TokenSource, TraceCallback {
+	private final LRTable table;
+	private final SymbolTable symbolTable;
+	private final ProductionIdGenerate idGenerate;
+
+	private BufferIO buffer;
+	private BufferTokenSource source;
+	private Fout fout;
+	// 已移入或归约得到的符号
+	private final List<String> symbolList = new ArrayList<>();
+	// 当前词素，以及从当前词素开始的剩余输入
+	private String inputStr = "";
+	private String morphemeStr = "";
+
+	public LRTrace(LRTable table, SymbolTable symbolTable, ProductionIdGenerate idGenerate) {
+		this.table = table;
+		this.symbolTable = symbolTable;
+		this.idGenerate = idGenerate;
+	}
+
+	/**
+	 * 分析输入并记录分析过程，调用print()输出
+	 * @return 输入是否被接受
+	 */
+	public boolean execute(BufferIO buffer) {
+		this.buffer = buffer;
+		this.source = new BufferTokenSource(buffer, symbolTable);
+		this.fout = new Fout();
+		fout.addColumn(new ColumnAttr("Stack", FoutGravity.LEFT));
+		fout.addColumn(new ColumnAttr("Symbol", FoutGravity.LEFT));
+		fout.addColumn(new ColumnAttr("Input", FoutGravity.RIGHT));
+		fout.addColumn(new ColumnAttr("Action", FoutGravity.LEFT));
+		symbolList.clear();
+
+		return new LRDriver(table).parse(this, null, this);
+	}
+
+	public void print() {
+		fout.fout();
+	}
+
+	@Override
+	public int nextToken() {
+		int token = source.nextToken();
+		inputStr = source.getLexeme();
+		morphemeStr = inputStr + buffer.getCurrentBufferString();
+		return token;
+	}
+
+	@Override
+	public void step(IntStack stack, int token, int action) {
+		StringBuilder stackStr = new StringBuilder();
+		for (int i = 0; i < stack.size(); i++) {
+			stackStr.append(stack.get(i)).append(" ");
+		}
+
+		StringBuilder symbolStr = new StringBuilder();
+		for (String str : symbolList) {
+			symbolStr.append(str).append(" ");
+		}
+
+		int target = ParseTable.getTarget(action);
+		String actionStr;
+		switch (ParseTable.getType(action)) {
+			case ParseTable.SHIFT:
+				actionStr = "Shift -> " + target;
+				symbolList.add(inputStr);
+				break;
+			case ParseTable.REDUCE:
+				String head = idGenerate.getProductionHead(target);
+				actionStr = "According to [" + head + " -> " + idGenerate.getProduction(target).getProductionStr() + "] reduce.";
+				for (int i = table.getProductionLength(target); i > 0; i--) {
+					symbolList.remove(symbolList.size() - 1);
+				}
+				symbolList.add(head);
+				break;
+			case ParseTable.ACCEPT:
+				actionStr = "Accept!";
+				break;
+			default:
+				actionStr = "Error!";
+		}
+		fout.insertln(stackStr.toString(), symbolStr.toString(), morphemeStr, actionStr);
+	}
+}
@@ -0,0 +1,109 @@
+package parser;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+import lexer.TokenStream;
+import table.CompiledTable;
+
+/**
+ * 一个分析请求使用的分析器，由CompiledGrammar.newParser()创建
+ *
+ * 分析表来自共享的CompiledGrammar，自身只持有分析栈，可以重复调用parse()，但不能被多个线程同时使用。
+ * LR类算法在每次归约时调用ReduceCallback；LL(1)在每次展开产生式时调用，顺序为最左推导的顺序。
+ */
+public class Parser {
+	private final CompiledGrammar grammar;
+	private final CompiledTable table;
+	private final LRDriver driver;
+	// LL(1)的符号栈，元素为符号编码
+	private final IntStack symbolStack;
+
+	// 最近一次分析出错时的终结符编号
+	private int errorToken = -1;
+
+	Parser(CompiledGrammar grammar) {
+		this.grammar = grammar;
+		this.table = grammar.getTable();
+		if (table.getAlgorithm().isLR()) {
+			this.driver = new LRDriver(table);
+			this.symbolStack = null;
+		} else {
+			this.driver = null;
+			this.symbolStack = new IntStack(64);
+		}
+	}
+
+	/**
+	 * 分析输入文件，以文法的词法分析器识别终结符，词素之间不需要空白
+	 * @return 输入是否被接受
+	 */
+	public boolean parse(String inputPath, ReduceCallback callback) {
+		BufferIO buffer = new BufferIO.Builder().setFilePath(inputPath).build();
+		try {
+			return parse(new TokenStream(grammar.getLexer(), buffer), callback);
+		} finally {
+			// 拒绝或遇到 $ 时输入没有读完，文件不会自动关闭
+			buffer.close();
+		}
+	}
+
+	/**
+	 * @param callback 可以为null
+	 * @return 输入是否被接受
+	 */
+	public boolean parse(TokenSource source, ReduceCallback callback) {
+		if (driver != null) {
+			boolean accept = driver.parse(source, callback);
+			errorToken = driver.getErrorToken();
+			return accept;
+		}
+		return parseLL(source, callback);
+	}
+
+	private boolean parseLL(TokenSource source, ReduceCallback callback) {
+		IntStack stack = symbolStack;
+		stack.clear();
+		stack.push(SymbolTable.END);
+		stack.push(SymbolTable.encodeNonTerminal(table.getStartState()));
+		errorToken = -1;
+
+		int token = source.nextToken();
+		while (true) {
+			int top = stack.peek();
+			if (token < 0) return error(token);
+
+			if (SymbolTable.isTerminal(top)) {
+				if (top != token) return error(token);
+				if (top == SymbolTable.END) return true;
+				stack.pop();
+				token = source.nextToken();
+				continue;
+			}
+
+			int head = SymbolTable.decodeNonTerminal(top);
+			int productionId = table.getPredict(head, token);
+			if (productionId < 0) return error(token);
+
+			stack.pop();
+			int length = table.getProductionLength(productionId);
+			for (int i = length - 1; i >= 0; i--) stack.push(table.getProductionSymbol(productionId, i));
+			if (callback != null) callback.reduce(productionId, head, length);
+		}
+	}
+
+	private boolean error(int token) {
+		this.errorToken = token;
+		return false;
+	}
+
+	/**
+	 * @return 最近一次分析出错时的终结符编号，未出错时为-1
+	 */
+	public int getErrorToken() {
+		return errorToken;
+	}
+
+	public CompiledGrammar getGrammar() {
+		return grammar;
+	}
+}
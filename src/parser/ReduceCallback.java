@@ -0,0 +1,13 @@
+package parser;
+
+/**
+ * 归约回调，分析器每次归约时调用
+ */
+public interface ReduceCallback {
+	/**
+	 * @param productionId 产生式编号
+	 * @param head 产生式头部的非终结符编号
+	 * @param length 产生式体长度，即弹出的符号个数
+	 */
+	void reduce(int productionId, int head, int length);
+}
@@ -0,0 +1,11 @@
+package parser;
+
+/**
+ * 词法单元来源，每次返回下一个词法单元的终结符编号
+ */
+public interface TokenSource {
+	/**
+	 * @return 终结符编号，输入结束时返回SymbolTable.END，无法识别时返回负数
+	 */
+	int nextToken();
+}
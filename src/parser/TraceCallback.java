@@ -0,0 +1,13 @@
+package parser;
+
+/**
+ * 分析过程回调，LRDriver在执行每个动作之前调用，用于输出分析过程
+ */
+public interface TraceCallback {
+	/**
+	 * @param stack 状态栈，栈底为开始状态，回调中不能修改
+	 * @param token 当前终结符编号
+	 * @param action 将要执行的动作，编码同ParseTable；出错时为ParseTable.ERROR
+	 */
+	void step(IntStack stack, int token, int action);
+}
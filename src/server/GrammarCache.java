@@ -0,0 +1,88 @@
+package server;
+
+import parser.CompiledGrammar;
+import table.Algorithm;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 编译后文法的LRU缓存，最多保留capacity个文法
+ *
+ * key为文法文件的绝对路径、修改时间与算法，文件被修改后旧的编译结果不再命中，最终被淘汰。
+ * 同一个文法同时被多个请求访问时只构造一次，其余请求等待同一个CompletableFuture；
+ * 构造在锁外进行，不同文法可以同时构造。
+ */
+public class GrammarCache {
+	private final int capacity;
+	private final Map<String, CompletableFuture<CompiledGrammar>> grammars;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public GrammarCache(int capacity) {
+		this.capacity = capacity;
+		// accessOrder为true时按访问顺序排列，最久未访问的在最前
+		this.grammars = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CompiledGrammar>> eldest) {
+				return size() > GrammarCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param cfgPath 文法文件路径，文件必须存在
+	 * @return 编译后的文法
+	 * @throws java.util.concurrent.CompletionException 构造失败，cause为构造时抛出的异常（如文法格式有误时的IllegalStateException）
+	 */
+	public CompiledGrammar get(String cfgPath, Algorithm algorithm) {
+		File file = new File(cfgPath).getAbsoluteFile();
+		String key = file.getPath() + "|" + file.lastModified() + "|" + algorithm.suffix;
+
+		CompletableFuture<CompiledGrammar> future;
+		boolean owner = false;
+		synchronized (grammars) {
+			future = grammars.get(key);
+			if (future == null) {
+				future = new CompletableFuture<>();
+				grammars.put(key, future);
+				owner = true;
+			}
+		}
+
+		if (!owner) {
+			hits.increment();
+			return future.join();
+		}
+
+		misses.increment();
+		try {
+			future.complete(CompiledGrammar.load(file.getPath(), algorithm));
+		} catch (Throwable e) {
+			// 构造失败的文法不缓存，下次请求重新构造；等待同一future的请求也得到这个异常，不会一直阻塞
+			synchronized (grammars) {
+				grammars.remove(key, future);
+			}
+			future.completeExceptionally(e);
+		}
+		return future.join();
+	}
+
+	public int size() {
+		synchronized (grammars) {
+			return grammars.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+}
@@ -0,0 +1,72 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求延迟统计，可以被多个线程同时记录
+ *
+ * 延迟以微秒为单位按2的幂分桶，第i个桶为 [2^(i-1), 2^i)，百分位数返回所在桶的上界，
+ * 误差不超过2倍，记录只需要几次原子操作。
+ */
+public class LatencyMetrics {
+	private static final int BucketCount = 64;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+	private final AtomicLongArray buckets = new AtomicLongArray(BucketCount);
+
+	public void record(long micros) {
+		count.increment();
+		totalMicros.add(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+		buckets.incrementAndGet(bucket(micros));
+	}
+
+	private static int bucket(long micros) {
+		return micros <= 0 ? 0 : Math.min(BucketCount - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return 平均延迟（微秒），没有记录时为0
+	 */
+	public double getMeanMicros() {
+		long n = count.sum();
+		return n == 0 ? 0 : 1.0 * totalMicros.sum() / n;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros.get();
+	}
+
+	/**
+	 * @param percent 0到100之间
+	 * @return 百分位数所在桶的上界（微秒），不超过最大延迟
+	 */
+	public long getPercentileMicros(double percent) {
+		long n = count.sum();
+		if (n == 0) return 0;
+
+		long rank = (long) Math.ceil(n * percent / 100);
+		long seen = 0;
+		for (int i = 0; i < BucketCount; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return i == 0 ? 0 : Math.min((1L << i) - 1, maxMicros.get());
+		}
+		return maxMicros.get();
+	}
+
+	/**
+	 * @return 形如 count=10 mean=12.5us p50=15us p99=63us max=40us 的摘要
+	 */
+	public String summary() {
+		return String.format("count=%d mean=%.1fus p50=%dus p99=%dus max=%dus",
+				getCount(), getMeanMicros(), getPercentileMicros(50), getPercentileMicros(99), getMaxMicros());
+	}
+}
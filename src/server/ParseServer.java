@@ -0,0 +1,174 @@
+package server;
+
+import fin.Fin;
+import lexer.TokenStream;
+import parser.CompiledGrammar;
+import parser.Parser;
+import table.Algorithm;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析服务，从输入流逐行读取请求，每个请求在单独的（虚拟）线程中分析，结果逐行写入输出流
+ *
+ * 请求：  id \t 文法 \t 算法 \t 输入
+ *   文法为文法文件路径，相对路径相对于 src/data/input；算法为 ll1、slr、lr1、lalr；
+ *   输入由文法的词法分析器识别，词素之间不需要空白，末尾的$可以省略。
+ *   单独一行 #stats 输出统计信息。
+ * 响应：  id \t accept|reject|error \t 延迟（微秒） \t 说明
+ *   响应按完成顺序输出，以id对应请求；延迟从读到请求开始计算，包括文法未命中缓存时的构造时间。
+ *
+ * 编译后的文法由GrammarCache缓存并在请求间共享，每个请求只创建自己的Parser。
+ * 运行在Java 21及以上时使用虚拟线程，否则使用固定大小的线程池。
+ */
+public class ParseServer {
+	public static final int DefaultCacheCapacity = 32;
+
+	private final GrammarCache cache;
+	private final LatencyMetrics metrics = new LatencyMetrics();
+	private final String grammarDirectory;
+
+	public ParseServer(int cacheCapacity) {
+		this.cache = new GrammarCache(cacheCapacity);
+		this.grammarDirectory = Fin.getInstance().getProjectPath() + "/src/data/input";
+	}
+
+	/**
+	 * 处理输入流中的所有请求，输入结束后等待所有请求完成再返回
+	 */
+	public void serve(InputStream input, PrintStream output) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		ExecutorService executor = newExecutor();
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) continue;
+				if (line.equals("#stats")) {
+					respond(output, "#stats\t" + stats());
+					continue;
+				}
+
+				long start = System.nanoTime();
+				String request = line;
+				executor.execute(() -> respond(output, handle(request, start)));
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private String handle(String request, long start) {
+		String[] fields = request.split("\t", 4);
+		String id = fields[0];
+		String status;
+		String detail;
+
+		if (fields.length < 4) {
+			status = "error";
+			detail = "expected: id \\t grammar \\t algorithm \\t input";
+		} else {
+			Algorithm algorithm = Algorithm.of(fields[2]);
+			File grammar = resolve(fields[1]);
+
+			if (algorithm == null) {
+				status = "error";
+				detail = "unknown algorithm " + fields[2];
+			} else if (!grammar.isFile()) {
+				status = "error";
+				detail = "grammar not found " + fields[1];
+			} else {
+				String[] result = parse(grammar, algorithm, fields[3]);
+				status = result[0];
+				detail = result[1];
+			}
+		}
+
+		long micros = (System.nanoTime() - start) / 1000;
+		metrics.record(micros);
+		return id + "\t" + status + "\t" + micros + "\t" + detail;
+	}
+
+	/**
+	 * @return {状态, 说明}
+	 */
+	private String[] parse(File grammarFile, Algorithm algorithm, String input) {
+		try {
+			CompiledGrammar grammar = cache.get(grammarFile.getPath(), algorithm);
+			Parser parser = grammar.newParser();
+			int[] steps = {0};
+
+			TokenStream stream = TokenStream.of(grammar.getLexer(), input);
+			boolean accept = parser.parse(stream, (productionId, head, length) -> steps[0]++);
+			if (accept) return new String[]{"accept", steps[0] + " steps"};
+
+			int token = parser.getErrorToken();
+			String[] terminals = grammar.getTable().getTerminals();
+			String near = token >= 0 && token < terminals.length ? terminals[token] : "unknown token";
+			return new String[]{"reject", "at " + near + " (offset " + stream.getTokenOffset() + ")"};
+		} catch (CompletionException e) {
+			// 文法构造失败，只影响当前请求
+			return new String[]{"error", String.valueOf(e.getCause().getMessage())};
+		} catch (RuntimeException e) {
+			return new String[]{"error", String.valueOf(e.getMessage())};
+		}
+	}
+
+	private File resolve(String grammar) {
+		File file = new File(grammar);
+		return file.isAbsolute() ? file : new File(grammarDirectory, grammar);
+	}
+
+	private static void respond(PrintStream output, String line) {
+		synchronized (output) {
+			output.println(line);
+			output.flush();
+		}
+	}
+
+	/**
+	 * Java 21及以上使用每个任务一个虚拟线程的线程池，否则使用与CPU核数相同的固定线程池
+	 */
+	static ExecutorService newExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	public String stats() {
+		return metrics.summary() + " grammars=" + cache.size()
+				+ " cacheHits=" + cache.getHits() + " cacheMisses=" + cache.getMisses();
+	}
+
+	public LatencyMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * 标准输入输出模式，其他输出（日志、构造过程）重定向到标准错误，不影响响应的格式
+	 * @param args 可选，文法缓存的容量
+	 */
+	public static void main(String[] args) throws IOException {
+		int capacity = args.length > 0 ? Integer.parseInt(args[0]) : DefaultCacheCapacity;
+		PrintStream output = System.out;
+		System.setOut(System.err);
+
+		ParseServer server = new ParseServer(capacity);
+		server.serve(System.in, output);
+		System.err.println(server.stats());
+	}
+}
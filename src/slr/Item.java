@@ -1,5 +1,6 @@
 package slr;
 
+import cfg.production.CompactProduction;
 import cfg.production.SubItem;
 
 /**
@@ -9,16 +10,21 @@ public class Item {
 	public static final char Point = '·';
 
 	// 产生式的编号
-	private int productionId;
+	private final int productionId;
 	// 每个项 · 的位置
-	private int pointPos;
+	private final int pointPos;
+	private final int hash;
 	//
 	private ProductionIdGenerate productionIdGenerate;
+	// 数组形式的产生式，按下标访问
+	private CompactProduction production;
 
 	public Item(ProductionIdGenerate productionIdGenerate, int productionId, int pointPos) {
 		this.productionIdGenerate = productionIdGenerate;
 		this.productionId = productionId;
 		this.pointPos = pointPos;
+		this.production = productionIdGenerate.getCompactProduction(productionId);
+		this.hash = 31 * productionId + pointPos;
 	}
 
 	public int getPointPos() {
@@ -36,11 +42,28 @@ public class Item {
 	// 获取期望子项，即下一个需要匹配的符号
 	// 当要进行归约时（即没有期望子项）返回null，否则返回子项
 	public SubItem getExpectSubItem() {
-		if (pointPos >= productionIdGenerate.getProduction(productionId).getSubItems().size()) return null;
+		return production.getSubItem(pointPos);
+	}
+
+	// 获取期望子项的符号编码，要进行归约时返回SymbolTable.EPSILON
+	public int getExpectSymbol() {
+		return production.getSymbol(pointPos);
+	}
 
-		SubItem subItem = productionIdGenerate.getExpectSubItem(productionId, pointPos);
-		if (subItem.getValue().equals("ε")) return null;
-		return subItem;
+	public CompactProduction getProduction() {
+		return production;
 	}
 
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof Item)) return false;
+		Item other = (Item) obj;
+		return productionId == other.productionId && pointPos == other.pointPos;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
 }
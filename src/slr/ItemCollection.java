@@ -7,6 +7,8 @@ import cfg.production.SubItem;
 import cfg.production.SubItemType;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * 项集族
@@ -16,12 +18,13 @@ public class ItemCollection {
 	private ProductionIdGenerate idGenerate;
 	private ItemSet startItemSet;
 	private Set<ItemSet> lrItemSets;
-	private Set<ItemSet> lrItemSets_remove;
+	// 内核 -> 项集，用于查找相同的项集
+	private Map<KernelKey, ItemSet> kernelIndex;
 
 	public ItemCollection(CFG cfg) {
-		this.idGenerate = ProductionIdGenerate.getInstance(cfg);
+		this.idGenerate = new ProductionIdGenerate(cfg);
 		this.lrItemSets = new LinkedHashSet<>();
-		this.lrItemSets_remove = new HashSet<>();
+		this.kernelIndex = new HashMap<>();
 
 		initStartItemSet();
 	}
@@ -46,86 +49,138 @@ public class ItemCollection {
 		startItemSet = new ItemSet(idGenerate);
 		startItemSet.addKernelLRItem(new Item(idGenerate, production.getId(), 0));
 		startItemSet.closure();
+		kernelIndex.put(startItemSet.getKernelKey(), startItemSet);
 		lrItemSets.add(startItemSet);
 	}
 
 	public void resetId() {
-		ItemSet.itemSetIdCount = -1;
+		idGenerate.resetItemSetId();
 		for (ItemSet lrItemSet : lrItemSets) {
-			lrItemSet.setId(++ItemSet.itemSetIdCount);
+			lrItemSet.setId(idGenerate.nextItemSetId());
 		}
 	}
 
+	/**
+	 * 按广度优先生成项集族
+	 * 对每个项集按转换符号求出后继的内核，先在kernelIndex中按内核查找，
+	 * 已存在则直接指向该项集，不存在才创建项集并求闭包。
+	 */
 	public void generateItemCollection() {
-		Queue<ItemSet> rec = gotoLrItemSet(startItemSet);
+		Queue<ItemSet> rec = new LinkedList<>();
+		rec.add(startItemSet);
 
 		while (!rec.isEmpty()) {
 			ItemSet itemSet = rec.poll();
-			itemSet.closure();
 			rec.addAll(gotoLrItemSet(itemSet));
-			lrItemSets.removeAll(lrItemSets_remove);
 		}
 	}
 
-	private Queue<ItemSet> gotoLrItemSet(ItemSet lrItemSet) {
-		// 对于lrItemSet中的每个项，进行移入规约查询，
-		// 如果可以移入，则创建一个新项集，然后将可以移入的项加入
+	/**
+	 * 并行生成项集族，得到的项集族与编号都与generateItemCollection()相同
+	 *
+	 * 按层（广度优先的一轮）同步：
+	 *  1. 并行求当前层每个项集的后继内核及其规范形式，只读取当前层的项集；
+	 *  2. 按当前层的顺序依次在kernelIndex中查找，新内核创建项集，只做哈希查找，顺序执行以保证编号确定；
+	 *  3. 并行求新项集的闭包，各项集互不影响。
+	 * @param pool 执行并行任务的线程池
+	 */
+	public void generateItemCollection(ForkJoinPool pool) {
+		List<ItemSet> wave = new ArrayList<>();
+		wave.add(startItemSet);
+
+		while (!wave.isEmpty()) {
+			List<ItemSet> current = wave;
+			List<List<Successor>> successors = pool.submit(() ->
+					current.parallelStream().map(this::successors).collect(Collectors.toList())
+			).join();
+
+			List<ItemSet> next = new ArrayList<>();
+			for (int i = 0; i < current.size(); i++) {
+				for (Successor successor : successors.get(i)) {
+					ItemSet target = register(successor, next);
+					current.get(i).getGotoTables().put(successor.symbol, target);
+				}
+			}
 
+			pool.submit(() -> next.parallelStream().forEach(ItemSet::closure)).join();
+			wave = next;
+		}
+	}
+
+	private Queue<ItemSet> gotoLrItemSet(ItemSet lrItemSet) {
+		List<ItemSet> result = new ArrayList<>();
 		Map<String, ItemSet> gotoTables = lrItemSet.getGotoTables();
 
-		Queue<ItemSet> result;
-		result = classificationQuery(gotoTables, lrItemSet.getLrKernelItems());
-		result.addAll(classificationQuery(gotoTables, lrItemSet.getLrNonKernelItems()));
+		for (Successor successor : successors(lrItemSet)) {
+			gotoTables.put(successor.symbol, register(successor, result));
+		}
+		for (ItemSet itemSet : result) itemSet.closure();
+		return new LinkedList<>(result);
+	}
 
-		// 检查合并相同项
-		Map<String, ItemSet> update = new HashMap<>();
+	/**
+	 * 在kernelIndex中查找后继内核，不存在时创建项集（未求闭包）并加入created
+	 * @return 后继内核对应的项集
+	 */
+	private ItemSet register(Successor successor, List<ItemSet> created) {
+		ItemSet target = kernelIndex.get(successor.key);
+		if (target == null) {
+			target = new ItemSet(idGenerate);
+			for (Item item : successor.kernel) target.addItem(item);
+
+			kernelIndex.put(successor.key, target);
+			lrItemSets.add(target);
+			created.add(target);
+		}
+		return target;
+	}
 
-		gotoTables.forEach((key, value) -> {
+	/**
+	 * 后继内核：通过symbol转换到的内核项，以及内核的规范形式
+	 */
+	private static class Successor {
+		final String symbol;
+		final List<Item> kernel;
+		final KernelKey key;
+
+		Successor(String symbol, List<Item> kernel) {
+			this.symbol = symbol;
+			this.kernel = kernel;
+			this.key = KernelKey.of(kernel);
+		}
+	}
 
-			lrItemSets.forEach(item -> {
-				if (item.contains(value)) {
-					update.put(key, item);
-					result.remove(value);
-					lrItemSets_remove.add(value);
-				}
-			});
-		});
-		gotoTables.putAll(update);
+	/**
+	 * 求lrItemSet的所有后继内核，对于lrItemSet中的每个项，进行移入规约查询，
+	 * 如果可以移入，则将移入后的项加入对应符号的内核
+	 */
+	private List<Successor> successors(ItemSet lrItemSet) {
+		Map<String, List<Item>> kernels = new LinkedHashMap<>();
+		classificationQuery(kernels, lrItemSet.getLrKernelItems());
+		classificationQuery(kernels, lrItemSet.getLrNonKernelItems());
+
+		List<Successor> result = new ArrayList<>();
+		for (var entry : kernels.entrySet()) {
+			result.add(new Successor(entry.getKey(), entry.getValue()));
+		}
 		return result;
 	}
 
 	/**
-	 * 对items进行归类查询，有相同转换的归为一个项集
-	 * @param gotoTables goto表
+	 * 对items进行归类查询，有相同转换的归为一个内核
+	 * @param kernels 转换符号 -> 内核项
 	 * @param items 内核项或非内核项
-	 * @return 返回新增项集
 	 */
-	private Queue<ItemSet> classificationQuery(Map<String, ItemSet> gotoTables, Set<Item> items) {
-
-		Queue<ItemSet> result = new LinkedList<>();
+	private void classificationQuery(Map<String, List<Item>> kernels, Set<Item> items) {
 		for (Item lki : items) {
 			SubItem subItem = lki.getExpectSubItem();
 
 			// 规约，不可移入，跳过
 			if (subItem == null) continue;
 
-			// 查看goto表是否有相同key转换
-			ItemSet sets = gotoTables.get(subItem.getValue());
-			// 如果没有则新建项集，然后添加
-			if (sets == null) {
-				sets = new ItemSet(idGenerate);
-				// 添加到goto表
-				gotoTables.put(subItem.getValue(), sets);
-				// 添加到项目族
-				lrItemSets.add(sets);
-				// 添加到返回结果
-				result.add(sets);
-			}
-
-			// 如果有则添加到项集中
-			sets.addItem(new Item(idGenerate, lki.getProductionId(), lki.getPointPos() + 1));
+			kernels.computeIfAbsent(subItem.getValue(), k -> new ArrayList<>())
+					.add(new Item(idGenerate, lki.getProductionId(), lki.getPointPos() + 1));
 		}
-		return result;
 	}
 
 	public void printItemCollection() {
@@ -1,5 +1,6 @@
 package slr;
 
+import cfg.SymbolTable;
 import cfg.production.Production;
 import cfg.production.ProductionGroup;
 import cfg.production.SubItem;
@@ -13,29 +14,26 @@ import java.util.*;
  * 项集
  */
 public class ItemSet {
-	public static int itemSetIdCount = -1;
-
 	// 项集的唯一标号
 	private int id;
 	// 非内核项
 	private Set<Item> lrNonKernelItems;
 	// 内核项
 	private Set<Item> lrKernelItems;
+	// 内核项哈希值之和，与项的顺序无关，添加内核项时更新
+	private int hash = 0;
 
 	// goto表，key为一个非终结符或终结符，value为通过key能到达哪些项集
-	private Map<String, ItemSet> gotoTables = new HashMap<>();
-	// key为产生式编号（productionId），value为此编号对应的pointPos位置
-	// 即，在项集中可能存在同一个产生式，但是·的位置不一样
-	private Map<Integer, Set<Integer>> productionPointPosSet;
+	// 按转换符号的加入顺序排列，重新编号时按此顺序遍历
+	private Map<String, ItemSet> gotoTables = new LinkedHashMap<>();
 
 	private ProductionIdGenerate idGenerate;
 
 	public ItemSet(ProductionIdGenerate idGenerate) {
-		this.id = ++itemSetIdCount;
+		this.id = idGenerate.nextItemSetId();
 		this.idGenerate = idGenerate;
 		lrNonKernelItems = new LinkedHashSet<>();
 		lrKernelItems = new LinkedHashSet<>();
-		productionPointPosSet = new HashMap<>();
 	}
 
 	/**
@@ -45,8 +43,7 @@ public class ItemSet {
 	 */
 	public ItemSet addItem(Item item) {
 		if (item.getPointPos() == 0) lrNonKernelItems.add(item);
-		else lrKernelItems.add(item);
-		addProductionPointPosSet(item);
+		else addKernel(item);
 		return this;
 	}
 
@@ -56,39 +53,41 @@ public class ItemSet {
 	 * @return
 	 */
 	public ItemSet addKernelLRItem(Item item) {
-		lrKernelItems.add(item);
-		addProductionPointPosSet(item);
+		addKernel(item);
 		return this;
 	}
 
+	private void addKernel(Item item) {
+		if (lrKernelItems.add(item)) hash += item.hashCode();
+	}
+
 	public void closure() {
 
 		Queue<Item> queue = new LinkedList<>();
 		queue.addAll(lrKernelItems);
 		queue.addAll(lrNonKernelItems);
-		// 标志位，某个非终结符是否已经添加过了
-		Set<String> alreadyAdds = new HashSet<>();
+		// 标志位，某个非终结符是否已经添加过了，以非终结符编号为下标
+		BitSet alreadyAdds = new BitSet();
 
 		while (!queue.isEmpty()) {
 			Item item = queue.poll();
-			SubItem expect = item.getExpectSubItem();
+			int expect = item.getExpectSymbol();
 
 			// 如果可以进行 ‘移入’ & 是非终结符 & 没有添加过
-			if (expect != null &&
-					expect.getType() == SubItemType.nonTerminal &&
-						!alreadyAdds.contains(expect.getValue())) {
+			if (SymbolTable.isNonTerminal(expect) &&
+						!alreadyAdds.get(SymbolTable.decodeNonTerminal(expect))) {
+				int nonTerminalId = SymbolTable.decodeNonTerminal(expect);
 				// 添加flag
-				alreadyAdds.add(expect.getValue());
+				alreadyAdds.set(nonTerminalId);
 
 				// 从cfg中查找，将非终结符对应产生式组的每个产生式都加入到非内核
-				ProductionGroup productionGroup = idGenerate.getCfg().getProductionGroupMap().get(expect.getValue());
+				ProductionGroup productionGroup = idGenerate.getCfg().getProductionGroup(nonTerminalId);
 				assert productionGroup != null;
 
 				// 每个产生式都加入到非内核项
 				for (Production production : productionGroup.getProductions()) {
 					Item lrItem = new Item(idGenerate, production.getId(), 0);
 					lrNonKernelItems.add(lrItem);
-					addProductionPointPosSet(lrItem);
 					// 并且添加到队列中
 					queue.add(lrItem);
 				}
@@ -97,36 +96,10 @@ public class ItemSet {
 	}
 
 	/**
-	 * 传入一个项集，判断当前项集是否可能包含该项集
-	 * @param other 另外一个项集
-	 * @return 如果包含返回true
+	 * @return 内核项的规范形式，内核相同的两个项集是同一个项集
 	 */
-	public boolean contains(ItemSet other) {
-		if (other == this) return false;
-		return contains(other.productionPointPosSet);
-	}
-
-	private boolean contains(Map<Integer, Set<Integer>> otherProductionPointPosSet) {
-		var entry = otherProductionPointPosSet.entrySet();
-		for (var item : entry) {
-			int keys = item.getKey();
-			Set<Integer> values = item.getValue();
-
-			Set<Integer> current = productionPointPosSet.get(keys);
-			// 当前项集不包含
-			if (current == null) return false;
-
-			// 如果匹配成功，检查·的位置是否一致
-			boolean status = current.containsAll(values);
-			if (!status) return false;
-		}
-
-		return true;
-	}
-
-	private void addProductionPointPosSet(Item item) {
-		Set<Integer> set = productionPointPosSet.computeIfAbsent(item.getProductionId(), k -> new HashSet<>());
-		set.add(item.getPointPos());
+	public KernelKey getKernelKey() {
+		return KernelKey.of(lrKernelItems);
 	}
 
 	public Map<String, ItemSet> getGotoTables() {
@@ -149,6 +122,22 @@ public class ItemSet {
 		return id;
 	}
 
+	/**
+	 * 内核项相同的两个项集相等，与id和Goto表无关
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof ItemSet)) return false;
+		ItemSet other = (ItemSet) obj;
+		return hash == other.hash && lrKernelItems.equals(other.lrKernelItems);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
 	public void printItemSet() {
 		Fout fout = new Fout(ColumnAttr.qCreate("KernelItemSet", "NonKernelItemSet"));
 		fout.setTableName("I" + id);
@@ -0,0 +1,45 @@
+package slr;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * LR(0)项集内核的规范形式，用作项集族的哈希索引
+ *
+ * 每个内核项编码为一个long：(产生式编号 << 32) | ·的位置，排序后保存在数组中，
+ * 所以内核相同（与项的添加顺序无关）的两个项集得到相同的数组，哈希值只计算一次。
+ */
+public class KernelKey {
+	private final long[] cores;
+	private final int hash;
+
+	private KernelKey(long[] cores) {
+		this.cores = cores;
+		this.hash = Arrays.hashCode(cores);
+	}
+
+	public static KernelKey of(Collection<Item> kernelItems) {
+		long[] cores = new long[kernelItems.size()];
+		int pos = 0;
+		for (Item item : kernelItems) cores[pos++] = encode(item.getProductionId(), item.getPointPos());
+		Arrays.sort(cores);
+		return new KernelKey(cores);
+	}
+
+	public static long encode(int productionId, int pointPos) {
+		return ((long) productionId << 32) | pointPos;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof KernelKey)) return false;
+		KernelKey other = (KernelKey) obj;
+		return hash == other.hash && Arrays.equals(cores, other.cores);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -1,67 +1,120 @@
 package slr;
 
 import cfg.CFG;
+import cfg.production.CompactProduction;
 import cfg.production.Production;
 import cfg.production.SubItem;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
-import java.util.Map;
+import java.util.List;
 
 /**
- * 对传入CFG中的产生式进行重新编号，然后放入到productionIds，项与项集都将拥有此类的唯一实例
+ * 一个文法的编译上下文：对传入CFG中的产生式进行重新编号，然后放入到productionIds，并为项集分配编号
+ * 每个文法一个实例，同一个项集族中的项与项集共用该实例；不同文法的实例互不影响，可以在不同线程中同时构造。
+ * 实例本身不加锁，一个文法的构造过程只在一个线程中修改它（并行构造时项集编号统一在最后分配）。
  */
 public class ProductionIdGenerate {
 
-	private static ProductionIdGenerate instance;
-
-	private Map<Integer, Production> productionIds;
-	private Map<Integer, String> productionHeads;
+	// 下标为产生式编号
+	private List<Production> productionIds;
+	private List<String> productionHeads;
+	private List<CompactProduction> compactProductions;
 	private CFG cfg;
+	// 最近分配的项集编号
+	private int itemSetIdCount = -1;
 
-
-	private ProductionIdGenerate(CFG cfg) {
+	public ProductionIdGenerate(CFG cfg) {
 		this.cfg = cfg;
-		this.productionIds = new HashMap<>();
-		this.productionHeads = new HashMap<>();
-	}
-
-	public static ProductionIdGenerate getInstance(CFG cfg) {
-		if (instance == null) {
-			synchronized (ProductionIdGenerate.class) {
-				if (instance == null) instance = new ProductionIdGenerate(cfg);
-			}
-		}
-		return instance;
+		this.productionIds = new ArrayList<>();
+		this.productionHeads = new ArrayList<>();
+		this.compactProductions = new ArrayList<>();
 	}
 
 	public void resetId() {
 		var entry = cfg.getProductionGroupMap().entrySet();
+		// 文法可能被修改过（如增广），先为新增的符号分配编号
+		cfg.internSymbols();
+
+		productionIds.clear();
+		productionHeads.clear();
+		compactProductions.clear();
 
-		Production.globalIdCount = -1;
 		// 开始符号先设置id
 		for (Production production : cfg.getProductionGroupMap().get(cfg.getStartSymbol()).getProductions()) {
-			production.setId(++Production.globalIdCount);
-
-			productionIds.put(Production.globalIdCount, production);
-			productionHeads.put(Production.globalIdCount, cfg.getStartSymbol());
+			register(production, cfg.getStartSymbol());
 		}
 
 		for (var item : entry) {
 			if (item.getKey().equals(cfg.getStartSymbol())) continue;
 
 			for (var p : item.getValue().getProductions()) {
-				p.setId(++Production.globalIdCount);
-				productionIds.put(Production.globalIdCount, p);
-				productionHeads.put(Production.globalIdCount, item.getKey());
+				register(p, item.getKey());
 			}
 		}
 	}
 
+	private void register(Production production, String head) {
+		int id = productionIds.size();
+		production.setId(id);
+
+		productionIds.add(production);
+		productionHeads.add(head);
+		compactProductions.add(new CompactProduction(id, production));
+	}
+
+	/**
+	 * @return 新项集的编号
+	 */
+	public int nextItemSetId() {
+		return ++itemSetIdCount;
+	}
+
+	/**
+	 * 项集重新编号前调用，之后的nextItemSetId()从0开始
+	 */
+	public void resetItemSetId() {
+		itemSetIdCount = -1;
+	}
+
 	public Production getProduction(int id) {
 		return productionIds.get(id);
 	}
 
+	public CompactProduction getCompactProduction(int id) {
+		return compactProductions.get(id);
+	}
+
+	/**
+	 * @return 下标为产生式编号，不可修改
+	 */
+	public List<CompactProduction> getCompactProductions() {
+		return Collections.unmodifiableList(compactProductions);
+	}
+
+	public int getProductionCount() {
+		return compactProductions.size();
+	}
+
+	/**
+	 * @return 下标为产生式编号，值为产生式头部的非终结符编号
+	 */
+	public int[] getProductionHeads() {
+		int[] heads = new int[compactProductions.size()];
+		for (int i = 0; i < heads.length; i++) heads[i] = compactProductions.get(i).getHeadId();
+		return heads;
+	}
+
+	/**
+	 * @return 下标为产生式编号，值为产生式体长度
+	 */
+	public int[] getProductionLengths() {
+		int[] lengths = new int[compactProductions.size()];
+		for (int i = 0; i < lengths.length; i++) lengths[i] = compactProductions.get(i).length();
+		return lengths;
+	}
+
 	public String getProductionHead(int id) {
 		return productionHeads.get(id);
 	}
@@ -71,9 +124,7 @@ public class ProductionIdGenerate {
 	}
 
 	public SubItem getExpectSubItem(int id, int pointPos) {
-		var subItems = productionIds.get(id).getSubItems();
-		if (subItems == null) return null;
-		return subItems.get(pointPos);
+		return compactProductions.get(id).getSubItem(pointPos);
 	}
 
 	public CFG getCfg() {
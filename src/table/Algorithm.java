@@ -0,0 +1,32 @@
+package table;
+
+/**
+ * 分析表的构造算法，与文法内容的哈希一起作为分析表缓存的key
+ */
+public enum Algorithm {
+	LL1("ll1"),
+	SLR("slr"),
+	LR1("lr1"),
+	LALR("lalr");
+
+	// 缓存文件的后缀
+	public final String suffix;
+
+	Algorithm(String suffix) {
+		this.suffix = suffix;
+	}
+
+	/**
+	 * @return 后缀对应的算法，不存在时返回null
+	 */
+	public static Algorithm of(String suffix) {
+		for (Algorithm algorithm : values()) {
+			if (algorithm.suffix.equals(suffix)) return algorithm;
+		}
+		return null;
+	}
+
+	public boolean isLR() {
+		return this != LL1;
+	}
+}
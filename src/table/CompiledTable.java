@@ -0,0 +1,32 @@
+package table;
+
+/**
+ * 编译后的分析表：LRTable加上符号名称与LL(1)预测分析表的查询
+ *
+ * 由TableImage（堆上的数组）与MappedParseTable（映射的缓存文件）实现，
+ * CompiledGrammar与Parser只通过此接口访问分析表。
+ */
+public interface CompiledTable extends LRTable {
+
+	Algorithm getAlgorithm();
+
+	/**
+	 * LL(1)预测分析表的查询
+	 * @return 产生式编号，没有对应产生式时返回-1
+	 */
+	int getPredict(int nonTerminal, int terminal);
+
+	/**
+	 * @return 产生式体中第pos个符号的编码
+	 */
+	int getProductionSymbol(int productionId, int pos);
+
+	/**
+	 * @return 终结符编号，不存在时返回-1
+	 */
+	int getTerminalId(String terminal);
+
+	String[] getTerminals();
+
+	String[] getNonTerminals();
+}
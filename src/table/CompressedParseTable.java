@@ -0,0 +1,281 @@
+package table;
+
+import fout.Fout;
+import fout.attr.ColumnAttr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压缩后的LR分析表，查找仍为O(1)
+ *
+ * Action表：
+ *  每个项集取出现次数最多的归约动作作为默认动作，行中等于默认动作或为错误的单元格不再存储；
+ *  其余单元格按行偏移（row displacement）叠放到同一个数组中，base为每行的偏移，
+ *  check记录该位置属于哪一行，不属于当前行时返回默认动作。
+ *  默认归约会把部分错误单元格变为归约，错误会在下一次移入之前被发现，与yacc一致。
+ * Goto表：
+ *  按列（非终结符）压缩，每列取出现次数最多的目标项集作为默认值，其余按列偏移叠放。
+ *  分析过程中只会查询存在的Goto，所以默认值不会引入错误；
+ *  但getGoto()对不存在的转换返回默认值而不是-1，见LRTable。
+ */
+public class CompressedParseTable implements LRTable {
+	private static final int Empty = -1;
+
+	// Action表
+	private final int[] actionDefaults;
+	private final int[] actionBase;
+	private int[] actionValue;
+	private int[] actionCheck;
+
+	// Goto表
+	private final int[] gotoDefaults;
+	private final int[] gotoBase;
+	private int[] gotoValue;
+	private int[] gotoCheck;
+
+	private final int[] productionHeads;
+	private final int[] productionLengths;
+
+	private final int stateCount;
+	private final int terminalCount;
+	private final int nonTerminalCount;
+	private final int startState;
+
+	public CompressedParseTable(LRTable table) {
+		this.stateCount = table.getStateCount();
+		this.terminalCount = table.getTerminalCount();
+		this.nonTerminalCount = table.getNonTerminalCount();
+		this.startState = table.getStartState();
+
+		this.productionHeads = new int[table.getProductionCount()];
+		this.productionLengths = new int[table.getProductionCount()];
+		for (int i = 0; i < productionHeads.length; i++) {
+			productionHeads[i] = table.getProductionHead(i);
+			productionLengths[i] = table.getProductionLength(i);
+		}
+
+		// 压缩Action表，每一行为一个项集
+		actionDefaults = new int[stateCount];
+		int[][] actionRows = new int[stateCount][];
+		for (int state = 0; state < stateCount; state++) {
+			int[] row = new int[terminalCount];
+			for (int t = 0; t < terminalCount; t++) row[t] = table.getAction(state, t);
+
+			actionDefaults[state] = defaultReduce(row);
+			actionRows[state] = sparse(row, actionDefaults[state], ParseTable.ERROR);
+		}
+		actionBase = new int[stateCount];
+		actionValue = new int[terminalCount];
+		actionCheck = new int[terminalCount];
+		Arrays.fill(actionCheck, Empty);
+		pack(actionRows, actionBase, true);
+
+		// 压缩Goto表，每一列为一个非终结符
+		gotoDefaults = new int[nonTerminalCount];
+		int[][] gotoColumns = new int[nonTerminalCount][];
+		for (int nt = 0; nt < nonTerminalCount; nt++) {
+			int[] column = new int[stateCount];
+			for (int state = 0; state < stateCount; state++) column[state] = table.getGoto(state, nt);
+
+			gotoDefaults[nt] = mostFrequent(column, -1);
+			gotoColumns[nt] = sparse(column, gotoDefaults[nt], -1);
+		}
+		gotoBase = new int[nonTerminalCount];
+		gotoValue = new int[stateCount];
+		gotoCheck = new int[stateCount];
+		Arrays.fill(gotoCheck, Empty);
+		pack(gotoColumns, gotoBase, false);
+	}
+
+	/**
+	 * 一行中出现次数最多的归约动作，没有归约动作时为ERROR
+	 */
+	private static int defaultReduce(int[] row) {
+		int[] reduces = new int[row.length];
+		int count = 0;
+		for (int action : row) {
+			if (ParseTable.getType(action) == ParseTable.REDUCE) reduces[count++] = action;
+		}
+		return mostFrequent(Arrays.copyOf(reduces, count), ParseTable.ERROR);
+	}
+
+	private static int mostFrequent(int[] values, int ignore) {
+		Map<Integer, Integer> counter = new HashMap<>();
+		int result = ignore;
+		int max = 0;
+		for (int value : values) {
+			if (value == ignore) continue;
+			int count = counter.merge(value, 1, Integer::sum);
+			if (count > max) {
+				max = count;
+				result = value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 取出需要存储的单元格，以 [下标, 值, 下标, 值 ...] 的形式返回
+	 */
+	private static int[] sparse(int[] line, int defaultValue, int emptyValue) {
+		int[] result = new int[line.length * 2];
+		int count = 0;
+		for (int i = 0; i < line.length; i++) {
+			if (line[i] == defaultValue || line[i] == emptyValue) continue;
+			result[count++] = i;
+			result[count++] = line[i];
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * 行偏移压缩，先放置单元格较多的行，每行放在第一个不冲突的偏移处
+	 */
+	private void pack(int[][] lines, int[] base, boolean isAction) {
+		Integer[] order = new Integer[lines.length];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> lines[b].length - lines[a].length);
+
+		for (int line : order) {
+			int[] cells = lines[line];
+			int offset = 0;
+			while (!fits(cells, offset, isAction ? actionCheck : gotoCheck)) offset++;
+			base[line] = offset;
+
+			for (int i = 0; i < cells.length; i += 2) {
+				int index = offset + cells[i];
+				ensureCapacity(index + 1, isAction);
+				if (isAction) {
+					actionValue[index] = cells[i + 1];
+					actionCheck[index] = line;
+				} else {
+					gotoValue[index] = cells[i + 1];
+					gotoCheck[index] = line;
+				}
+			}
+		}
+
+		// 去掉末尾没有使用的位置
+		if (isAction) {
+			int length = usedLength(actionCheck);
+			actionValue = Arrays.copyOf(actionValue, length);
+			actionCheck = Arrays.copyOf(actionCheck, length);
+		} else {
+			int length = usedLength(gotoCheck);
+			gotoValue = Arrays.copyOf(gotoValue, length);
+			gotoCheck = Arrays.copyOf(gotoCheck, length);
+		}
+	}
+
+	private static boolean fits(int[] cells, int offset, int[] check) {
+		for (int i = 0; i < cells.length; i += 2) {
+			int index = offset + cells[i];
+			if (index < check.length && check[index] != Empty) return false;
+		}
+		return true;
+	}
+
+	private void ensureCapacity(int length, boolean isAction) {
+		int[] check = isAction ? actionCheck : gotoCheck;
+		if (length <= check.length) return;
+
+		int newLength = Math.max(length, check.length * 2);
+		int[] newCheck = Arrays.copyOf(check, newLength);
+		Arrays.fill(newCheck, check.length, newLength, Empty);
+		if (isAction) {
+			actionValue = Arrays.copyOf(actionValue, newLength);
+			actionCheck = newCheck;
+		} else {
+			gotoValue = Arrays.copyOf(gotoValue, newLength);
+			gotoCheck = newCheck;
+		}
+	}
+
+	private static int usedLength(int[] check) {
+		int length = check.length;
+		while (length > 0 && check[length - 1] == Empty) length--;
+		return length;
+	}
+
+	@Override
+	public int getAction(int state, int terminal) {
+		int index = actionBase[state] + terminal;
+		if (index < actionCheck.length && actionCheck[index] == state) return actionValue[index];
+		return actionDefaults[state];
+	}
+
+	@Override
+	public int getGoto(int state, int nonTerminal) {
+		int index = gotoBase[nonTerminal] + state;
+		if (index < gotoCheck.length && gotoCheck[index] == nonTerminal) return gotoValue[index];
+		return gotoDefaults[nonTerminal];
+	}
+
+	@Override
+	public int getProductionHead(int productionId) {
+		return productionHeads[productionId];
+	}
+
+	@Override
+	public int getProductionLength(int productionId) {
+		return productionLengths[productionId];
+	}
+
+	@Override
+	public int getProductionCount() {
+		return productionHeads.length;
+	}
+
+	@Override
+	public int getStateCount() {
+		return stateCount;
+	}
+
+	@Override
+	public int getTerminalCount() {
+		return terminalCount;
+	}
+
+	@Override
+	public int getNonTerminalCount() {
+		return nonTerminalCount;
+	}
+
+	@Override
+	public int getStartState() {
+		return startState;
+	}
+
+	/**
+	 * @return 稠密表的单元格数
+	 */
+	public int getDenseSize() {
+		return stateCount * (terminalCount + nonTerminalCount);
+	}
+
+	/**
+	 * @return 压缩后所有数组的int个数
+	 */
+	public int getCompressedSize() {
+		return actionDefaults.length + actionBase.length + actionValue.length + actionCheck.length +
+				gotoDefaults.length + gotoBase.length + gotoValue.length + gotoCheck.length;
+	}
+
+	/**
+	 * @return 压缩率，压缩后大小 / 稠密表大小
+	 */
+	public double getCompressionRatio() {
+		int denseSize = getDenseSize();
+		if (denseSize == 0) return 1.0;
+		return 1.0 * getCompressedSize() / denseSize;
+	}
+
+	public void printCompression() {
+		Fout fout = new Fout(ColumnAttr.qCreate("States", "DenseCells", "CompressedInts", "Ratio"));
+		fout.insertln(stateCount, getDenseSize(), getCompressedSize(),
+				String.format("%.2f%%", getCompressionRatio() * 100));
+		fout.fout();
+	}
+}
@@ -0,0 +1,33 @@
+package table;
+
+/**
+ * LR分析表的只读接口
+ *
+ * Action单元格的编码见ParseTable。
+ * Goto没有转换时，稠密表（ParseTable、TableImage、MappedParseTable）返回-1，
+ * CompressedParseTable返回该列的默认目标而不是-1，调用者不能以返回值判断转换是否存在。
+ * 归约后查询的Goto在正确的LR分析表中总是存在，所以分析过程不受影响。
+ */
+public interface LRTable {
+
+	int getAction(int state, int terminal);
+
+	/**
+	 * @return 目标项集；没有转换时的返回值见接口说明
+	 */
+	int getGoto(int state, int nonTerminal);
+
+	int getProductionHead(int productionId);
+
+	int getProductionLength(int productionId);
+
+	int getProductionCount();
+
+	int getStateCount();
+
+	int getTerminalCount();
+
+	int getNonTerminalCount();
+
+	int getStartState();
+}
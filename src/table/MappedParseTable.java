@@ -0,0 +1,210 @@
+package table;
+
+import logger.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 以内存映射方式打开的分析表缓存文件，格式见TableCache
+ *
+ * 文件以只读方式映射，action、goto与产生式直接从映射的IntBuffer中读取，不复制到堆上，
+ * 同一台机器上打开同一个缓存文件的多个进程共享操作系统的页缓存。
+ * 堆上只保留符号名称与每个产生式体的起始位置。
+ * 映射在对象被回收前一直有效，只读，可以被多个线程同时使用。
+ */
+public class MappedParseTable implements CompiledTable {
+	private final Algorithm algorithm;
+
+	private final String[] terminals;
+	private final String[] nonTerminals;
+	// 终结符名称 -> 编号
+	private final Map<String, Integer> terminalIndex;
+
+	private final int productionCount;
+	private final int rowCount;
+	private final int startState;
+
+	// 以下均为int区的视图
+	private final IntBuffer heads;
+	private final IntBuffer lengths;
+	private final IntBuffer bodies;
+	private final IntBuffer action;
+	private final IntBuffer gotos;
+	// 产生式编号 -> 产生式体在bodies中的起始位置
+	private final int[] bodyOffsets;
+
+	private MappedParseTable(ByteBuffer buffer) throws IOException {
+		this.algorithm = Algorithm.values()[buffer.getInt(8)];
+
+		int position = 12 + TableCache.HashLength;
+		int terminalCount = buffer.getInt(position);
+		int nonTerminalCount = buffer.getInt(position + 4);
+		this.productionCount = buffer.getInt(position + 8);
+		this.rowCount = buffer.getInt(position + 12);
+		this.startState = buffer.getInt(position + 16);
+		int intOffset = buffer.getInt(TableCache.IntOffsetPosition);
+
+		buffer.position(TableCache.IntOffsetPosition + 4);
+		this.terminals = new String[terminalCount];
+		for (int i = 0; i < terminalCount; i++) terminals[i] = readUTF(buffer);
+		this.nonTerminals = new String[nonTerminalCount];
+		for (int i = 0; i < nonTerminalCount; i++) nonTerminals[i] = readUTF(buffer);
+		this.terminalIndex = new HashMap<>();
+		for (int i = 0; i < terminalCount; i++) terminalIndex.put(terminals[i], i);
+
+		buffer.position(intOffset);
+		IntBuffer ints = buffer.slice().asIntBuffer();
+		this.heads = view(ints, 0, productionCount);
+		this.lengths = view(ints, productionCount, productionCount);
+
+		this.bodyOffsets = new int[productionCount];
+		int bodyLength = 0;
+		for (int i = 0; i < productionCount; i++) {
+			bodyOffsets[i] = bodyLength;
+			bodyLength += lengths.get(i);
+		}
+		int offset = productionCount * 2;
+		this.bodies = view(ints, offset, bodyLength);
+		offset += bodyLength;
+		this.action = view(ints, offset, rowCount * terminalCount);
+		offset += rowCount * terminalCount;
+		this.gotos = view(ints, offset, algorithm.isLR() ? rowCount * nonTerminalCount : 0);
+	}
+
+	/**
+	 * 映射文法对应的缓存文件
+	 * @return 缓存不存在或与文法内容、算法不匹配时返回null
+	 */
+	public static MappedParseTable open(String cfgPath, Algorithm algorithm) {
+		File file = TableCache.cacheFile(cfgPath, algorithm);
+		if (!file.exists()) return null;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// 映射建立后关闭channel不影响映射
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (!TableCache.matches(buffer, algorithm, TableCache.hash(cfgPath))) return null;
+			return new MappedParseTable(buffer);
+		} catch (IOException | RuntimeException e) {
+			Log.warning("table cache", file.getPath() + " is invalid: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * 映射缓存文件，缓存不存在或已失效时先构造分析表并写入缓存
+	 * @return 缓存文件无法写入或映射时返回已构造的堆上分析表，分析表只构造一次
+	 */
+	public static CompiledTable openOrBuild(String cfgPath, Algorithm algorithm, TableCache.TableBuilder builder) {
+		MappedParseTable table = open(cfgPath, algorithm);
+		if (table != null) return table;
+
+		TableImage image = builder.build(TableCache.hash(cfgPath));
+		TableCache.write(cfgPath, image);
+		table = open(cfgPath, algorithm);
+		return table != null ? table : image;
+	}
+
+	private static IntBuffer view(IntBuffer ints, int offset, int length) {
+		ints.limit(offset + length).position(offset);
+		IntBuffer result = ints.slice();
+		ints.clear();
+		return result;
+	}
+
+	/**
+	 * 读取DataOutputStream.writeUTF()写入的字符串，符号名称只有在打开时读取一次
+	 */
+	private static String readUTF(ByteBuffer buffer) throws IOException {
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length + 2];
+		bytes[0] = (byte) (length >>> 8);
+		bytes[1] = (byte) length;
+		buffer.get(bytes, 2, length);
+		return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+	}
+
+	@Override
+	public int getPredict(int nonTerminal, int terminal) {
+		return action.get(nonTerminal * terminals.length + terminal) - 1;
+	}
+
+	@Override
+	public int getProductionSymbol(int productionId, int pos) {
+		return bodies.get(bodyOffsets[productionId] + pos);
+	}
+
+	@Override
+	public int getTerminalId(String terminal) {
+		return terminalIndex.getOrDefault(terminal, -1);
+	}
+
+	@Override
+	public int getAction(int state, int terminal) {
+		return action.get(state * terminals.length + terminal);
+	}
+
+	@Override
+	public int getGoto(int state, int nonTerminal) {
+		return gotos.get(state * nonTerminals.length + nonTerminal);
+	}
+
+	@Override
+	public int getProductionHead(int productionId) {
+		return heads.get(productionId);
+	}
+
+	@Override
+	public int getProductionLength(int productionId) {
+		return lengths.get(productionId);
+	}
+
+	@Override
+	public int getProductionCount() {
+		return productionCount;
+	}
+
+	@Override
+	public int getStateCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int getTerminalCount() {
+		return terminals.length;
+	}
+
+	@Override
+	public int getNonTerminalCount() {
+		return nonTerminals.length;
+	}
+
+	@Override
+	public int getStartState() {
+		return startState;
+	}
+
+	@Override
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	@Override
+	public String[] getTerminals() {
+		return terminals;
+	}
+
+	@Override
+	public String[] getNonTerminals() {
+		return nonTerminals;
+	}
+}
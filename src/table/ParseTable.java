@@ -0,0 +1,200 @@
+package table;
+
+import cfg.CFG;
+import cfg.SymbolTable;
+import fout.Fout;
+import fout.attr.ColumnAttr;
+import logger.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LR分析表，以稠密的二维int数组存储
+ *
+ * Action表以 [项集编号][终结符编号] 为下标，每个单元格用一个int编码动作：
+ *  低2位为动作类型（ERROR、SHIFT、REDUCE、ACCEPT），
+ *  其余位为目标，移入时为项集编号，归约时为产生式编号。
+ * Goto表以 [项集编号][非终结符编号] 为下标，值为项集编号，没有转换时为-1。
+ * 同一单元格被写入不同的动作时记录为冲突，单元格保留后写入的动作，构造完成后由reportConflicts()输出。
+ */
+public class ParseTable implements LRTable {
+	public static final int ERROR = 0;
+	public static final int SHIFT = 1;
+	public static final int REDUCE = 2;
+	public static final int ACCEPT = 3;
+
+	private static final int TypeBits = 2;
+	private static final int TypeMask = (1 << TypeBits) - 1;
+
+	private final int[][] actionTables;
+	private final int[][] gotoTables;
+
+	// 产生式编号 -> 产生式头部的非终结符编号
+	private final int[] productionHeads;
+	// 产生式编号 -> 产生式体长度
+	private final int[] productionLengths;
+
+	private final int startState;
+
+	// 冲突 {项集编号, 终结符编号, 原动作, 新动作}，并行填表时各行由不同线程写入
+	private final List<int[]> conflicts = new ArrayList<>();
+
+	public ParseTable(int stateCount, int terminalCount, int nonTerminalCount,
+					  int[] productionHeads, int[] productionLengths, int startState) {
+		this.actionTables = new int[stateCount][terminalCount];
+		this.gotoTables = new int[stateCount][nonTerminalCount];
+		for (int[] row : gotoTables) Arrays.fill(row, -1);
+
+		this.productionHeads = productionHeads;
+		this.productionLengths = productionLengths;
+		this.startState = startState;
+	}
+
+	public static int shift(int state) {
+		return (state << TypeBits) | SHIFT;
+	}
+
+	public static int reduce(int productionId) {
+		return (productionId << TypeBits) | REDUCE;
+	}
+
+	public static int accept() {
+		return ACCEPT;
+	}
+
+	public static int getType(int action) {
+		return action & TypeMask;
+	}
+
+	public static int getTarget(int action) {
+		return action >>> TypeBits;
+	}
+
+	/**
+	 * 动作的字符串形式，如 s5、r3、acc，错误为空字符串
+	 */
+	public static String convert(int action) {
+		switch (getType(action)) {
+			case SHIFT: return "s" + getTarget(action);
+			case REDUCE: return "r" + getTarget(action);
+			case ACCEPT: return "acc";
+		}
+		return "";
+	}
+
+	public void setAction(int state, int terminal, int action) {
+		int existing = actionTables[state][terminal];
+		if (existing != ERROR && existing != action) {
+			synchronized (conflicts) {
+				conflicts.add(new int[]{state, terminal, existing, action});
+			}
+		}
+		actionTables[state][terminal] = action;
+	}
+
+	/**
+	 * @return 冲突 {项集编号, 终结符编号, 原动作, 新动作}，没有冲突时为空
+	 */
+	public List<int[]> getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * 输出移入-归约、归约-归约冲突
+	 * @return 冲突个数
+	 */
+	public int reportConflicts(SymbolTable symbolTable) {
+		for (int[] conflict : conflicts) {
+			String type = getType(conflict[2]) == SHIFT || getType(conflict[3]) == SHIFT ? "shift/reduce" : "reduce/reduce";
+			Log.warning(type + " conflict", "state " + conflict[0] + ", " + symbolTable.getTerminal(conflict[1]) + ": "
+					+ convert(conflict[2]) + " / " + convert(conflict[3]) + ", keep " + convert(conflict[3]));
+		}
+		return conflicts.size();
+	}
+
+	@Override
+	public int getAction(int state, int terminal) {
+		return actionTables[state][terminal];
+	}
+
+	public void setGoto(int state, int nonTerminal, int target) {
+		gotoTables[state][nonTerminal] = target;
+	}
+
+	@Override
+	public int getGoto(int state, int nonTerminal) {
+		return gotoTables[state][nonTerminal];
+	}
+
+	@Override
+	public int getProductionHead(int productionId) {
+		return productionHeads[productionId];
+	}
+
+	@Override
+	public int getProductionLength(int productionId) {
+		return productionLengths[productionId];
+	}
+
+	@Override
+	public int getProductionCount() {
+		return productionHeads.length;
+	}
+
+	@Override
+	public int getStateCount() {
+		return actionTables.length;
+	}
+
+	@Override
+	public int getTerminalCount() {
+		return actionTables.length == 0 ? 0 : actionTables[0].length;
+	}
+
+	@Override
+	public int getNonTerminalCount() {
+		return gotoTables.length == 0 ? 0 : gotoTables[0].length;
+	}
+
+	@Override
+	public int getStartState() {
+		return startState;
+	}
+
+	/**
+	 * 输出Action表和Goto表，列按cfg中的终结符和非终结符顺序，$放在Action表最后
+	 * @param cfg 文法
+	 */
+	public void printParseTable(CFG cfg) {
+		SymbolTable symbolTable = cfg.getSymbolTable();
+
+		int terminalCount = getTerminalCount();
+		String[] terminals = new String[terminalCount];
+		for (int i = 1; i < terminalCount; i++) terminals[i - 1] = symbolTable.getTerminal(i);
+		terminals[terminalCount - 1] = SymbolTable.EndSymbol;
+
+		Object[] nonTerminals = cfg.getNonTerminals().toArray();
+
+		Fout fout = new Fout(ColumnAttr.qCreate("State", "Action", "Goto"));
+		fout.addSubColumn("Action", ColumnAttr.qCreate(terminals));
+		fout.addSubColumn("Goto", ColumnAttr.qCreate(nonTerminals));
+
+		for (int state = 0; state < getStateCount(); state++) {
+			fout.insert(state);
+
+			for (String terminal : terminals) {
+				fout.insert(convert(getAction(state, symbolTable.getTerminalId(terminal))));
+			}
+
+			for (Object nonTerminal : nonTerminals) {
+				int id = symbolTable.getNonTerminalId(String.valueOf(nonTerminal));
+				int target = id < getNonTerminalCount() ? getGoto(state, id) : -1;
+				fout.insert(target < 0 ? "" : String.valueOf(target));
+			}
+		}
+
+		fout.fout();
+	}
+}
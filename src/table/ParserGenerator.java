@@ -0,0 +1,228 @@
+package table;
+
+import fin.FileAttrCode;
+import fin.Fin;
+
+/**
+ * 由LR类分析表生成独立的Java分析器源代码，与yacc、CUP的做法一致
+ *
+ * 生成的类不依赖本项目中的任何类，包含：
+ *  符号名称常量 TERMINALS、NON_TERMINALS，下标为编号；
+ *  以String常量编码的产生式头部、产生式体长度、Action表与Goto表（编码同ParseTable），
+ *  在类加载时解码为int[]；
+ *  与LRDriver相同的移入-归约循环。
+ * 分析表以String而不是int[]字面量存储，因为数组字面量会编译为静态初始化方法中的指令，
+ * 较大的分析表会超过单个方法64KB的限制；每个int拆成两个char，每段字符串最多ChunkSize个int，
+ * 保证常量池中每个字符串不超过65535字节。
+ */
+public class ParserGenerator {
+	static final int ChunkSize = 8000;
+
+	private final TableImage table;
+
+	/**
+	 * @throws IllegalArgumentException table不是LR类算法的分析表
+	 */
+	public ParserGenerator(TableImage table) {
+		if (!table.getAlgorithm().isLR()) {
+			throw new IllegalArgumentException("ParserGenerator only supports LR tables, got " + table.getAlgorithm());
+		}
+		this.table = table;
+	}
+
+	/**
+	 * @param packageName 生成类的包名，为null或空字符串时不输出package语句
+	 * @param className 生成类的类名
+	 * @return Java源代码，只包含ASCII字符
+	 */
+	public String generate(String packageName, String className) {
+		int stateCount = table.getStateCount();
+		int terminalCount = table.getTerminalCount();
+		int nonTerminalCount = table.getNonTerminalCount();
+		int productionCount = table.getProductionCount();
+
+		int[] heads = new int[productionCount];
+		int[] lengths = new int[productionCount];
+		for (int i = 0; i < productionCount; i++) {
+			heads[i] = table.getProductionHead(i);
+			lengths[i] = table.getProductionLength(i);
+		}
+
+		StringBuilder out = new StringBuilder();
+		if (packageName != null && !packageName.isEmpty()) out.append("package ").append(packageName).append(";\n\n");
+
+		out.append("import java.util.Arrays;\n");
+		out.append("import java.util.HashMap;\n");
+		out.append("import java.util.Map;\n\n");
+		out.append("/**\n");
+		out.append(" * Generated ").append(table.getAlgorithm()).append(" parser, do not edit.\n");
+		if (table.getGrammarHash() != null) out.append(" * Grammar SHA-256: ").append(hex(table.getGrammarHash())).append("\n");
+		out.append(" * ").append(stateCount).append(" states, ").append(terminalCount).append(" terminals, ")
+				.append(nonTerminalCount).append(" non-terminals, ").append(productionCount).append(" productions.\n");
+		out.append(" */\n");
+		out.append("public final class ").append(className).append(" {\n");
+
+		out.append("\tpublic static final int ERROR = 0;\n");
+		out.append("\tpublic static final int SHIFT = 1;\n");
+		out.append("\tpublic static final int REDUCE = 2;\n");
+		out.append("\tpublic static final int ACCEPT = 3;\n\n");
+
+		out.append("\tpublic static final int STATE_COUNT = ").append(stateCount).append(";\n");
+		out.append("\tpublic static final int TERMINAL_COUNT = ").append(terminalCount).append(";\n");
+		out.append("\tpublic static final int NON_TERMINAL_COUNT = ").append(nonTerminalCount).append(";\n");
+		out.append("\tpublic static final int START_STATE = ").append(table.getStartState()).append(";\n\n");
+
+		appendNames(out, "TERMINALS", table.getTerminals());
+		appendNames(out, "NON_TERMINALS", table.getNonTerminals());
+		out.append("\n");
+
+		appendTable(out, "PRODUCTION_HEADS", heads);
+		appendTable(out, "PRODUCTION_LENGTHS", lengths);
+		appendTable(out, "ACTION", table.getActionArray());
+		appendTable(out, "GOTO", table.getGotoArray());
+		out.append("\n");
+
+		out.append("\tprivate static final Map<String, Integer> TERMINAL_IDS = new HashMap<>();\n");
+		out.append("\tstatic {\n");
+		out.append("\t\tfor (int i = 0; i < TERMINALS.length; i++) TERMINAL_IDS.put(TERMINALS[i], i);\n");
+		out.append("\t}\n\n");
+
+		out.append(DriverSource);
+		out.append("}\n");
+		return out.toString();
+	}
+
+	/**
+	 * 生成源代码并写入 directory/className.java
+	 */
+	public FileAttrCode write(String directory, String packageName, String className) {
+		return Fin.getInstance().rewrite(directory + "/" + className + ".java", generate(packageName, className));
+	}
+
+	private static void appendNames(StringBuilder out, String name, String[] values) {
+		out.append("\tpublic static final String[] ").append(name).append(" = {");
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) out.append(", ");
+			out.append('"').append(escape(values[i])).append('"');
+		}
+		out.append("};\n");
+	}
+
+	private static void appendTable(StringBuilder out, String name, int[] values) {
+		out.append("\tprivate static final int[] ").append(name).append(" = decode(").append(values.length);
+		for (int start = 0; start < values.length; start += ChunkSize) {
+			out.append(",\n\t\t\t\"");
+			int end = Math.min(values.length, start + ChunkSize);
+			for (int i = start; i < end; i++) {
+				appendChar(out, (char) (values[i] >>> 16));
+				appendChar(out, (char) values[i]);
+			}
+			out.append('"');
+		}
+		out.append(");\n");
+	}
+
+	/**
+	 * 以字符串字面量的形式输出一个字符，结果只包含ASCII字符
+	 * Unicode转义在词法分析之前就会被替换，引号、换行等字符的Unicode转义会破坏字面量，
+	 * 所以小于0x100的字符用三位八进制转义
+	 */
+	private static void appendChar(StringBuilder out, char c) {
+		if (c == '"' || c == '\\') out.append('\\').append(c);
+		else if (c >= 0x20 && c <= 0x7e) out.append(c);
+		else if (c < 0x100) out.append(String.format("\\%03o", (int) c));
+		else out.append(String.format("\\u%04x", (int) c));
+	}
+
+	private static String escape(String value) {
+		StringBuilder result = new StringBuilder();
+		for (char c : value.toCharArray()) appendChar(result, c);
+		return result.toString();
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder result = new StringBuilder();
+		for (byte b : bytes) result.append(String.format("%02x", b));
+		return result.toString();
+	}
+
+	private static final String DriverSource =
+			"\tpublic interface TokenSource {\n" +
+			"\t\t/**\n" +
+			"\t\t * @return terminal id, 0 ($) at end of input, negative if unrecognized\n" +
+			"\t\t */\n" +
+			"\t\tint nextToken();\n" +
+			"\t}\n\n" +
+			"\tpublic interface ReduceCallback {\n" +
+			"\t\tvoid reduce(int productionId, int head, int length);\n" +
+			"\t}\n\n" +
+			"\tprivate int[] stack = new int[64];\n" +
+			"\tprivate int errorState = -1;\n" +
+			"\tprivate int errorToken = -1;\n\n" +
+			"\t/**\n" +
+			"\t * @return terminal id, -1 if the name is not a terminal\n" +
+			"\t */\n" +
+			"\tpublic static int terminalId(String name) {\n" +
+			"\t\treturn TERMINAL_IDS.getOrDefault(name, -1);\n" +
+			"\t}\n\n" +
+			"\t/**\n" +
+			"\t * Not thread-safe; use one instance per thread.\n" +
+			"\t * @param callback may be null\n" +
+			"\t * @return true if the input is accepted\n" +
+			"\t */\n" +
+			"\tpublic boolean parse(TokenSource source, ReduceCallback callback) {\n" +
+			"\t\tint[] stack = this.stack;\n" +
+			"\t\tint top = 0;\n" +
+			"\t\tstack[0] = START_STATE;\n" +
+			"\t\terrorState = -1;\n" +
+			"\t\terrorToken = -1;\n\n" +
+			"\t\tint token = source.nextToken();\n" +
+			"\t\twhile (true) {\n" +
+			"\t\t\tint state = stack[top];\n" +
+			"\t\t\tint action = token < 0 ? ERROR : ACTION[state * TERMINAL_COUNT + token];\n" +
+			"\t\t\tint target = action >>> 2;\n\n" +
+			"\t\t\tswitch (action & 3) {\n" +
+			"\t\t\t\tcase SHIFT:\n" +
+			"\t\t\t\t\tif (++top == stack.length) this.stack = stack = Arrays.copyOf(stack, top * 2);\n" +
+			"\t\t\t\t\tstack[top] = target;\n" +
+			"\t\t\t\t\ttoken = source.nextToken();\n" +
+			"\t\t\t\t\tbreak;\n" +
+			"\t\t\t\tcase REDUCE:\n" +
+			"\t\t\t\t\tint length = PRODUCTION_LENGTHS[target];\n" +
+			"\t\t\t\t\tint head = PRODUCTION_HEADS[target];\n" +
+			"\t\t\t\t\ttop -= length;\n\n" +
+			"\t\t\t\t\tint next = GOTO[stack[top] * NON_TERMINAL_COUNT + head];\n" +
+			"\t\t\t\t\tif (next < 0) return error(stack[top], token);\n" +
+			"\t\t\t\t\tif (++top == stack.length) this.stack = stack = Arrays.copyOf(stack, top * 2);\n" +
+			"\t\t\t\t\tstack[top] = next;\n\n" +
+			"\t\t\t\t\tif (callback != null) callback.reduce(target, head, length);\n" +
+			"\t\t\t\t\tbreak;\n" +
+			"\t\t\t\tcase ACCEPT:\n" +
+			"\t\t\t\t\treturn true;\n" +
+			"\t\t\t\tdefault:\n" +
+			"\t\t\t\t\treturn error(state, token);\n" +
+			"\t\t\t}\n" +
+			"\t\t}\n" +
+			"\t}\n\n" +
+			"\tprivate boolean error(int state, int token) {\n" +
+			"\t\terrorState = state;\n" +
+			"\t\terrorToken = token;\n" +
+			"\t\treturn false;\n" +
+			"\t}\n\n" +
+			"\tpublic int getErrorState() {\n" +
+			"\t\treturn errorState;\n" +
+			"\t}\n\n" +
+			"\tpublic int getErrorToken() {\n" +
+			"\t\treturn errorToken;\n" +
+			"\t}\n\n" +
+			"\tprivate static int[] decode(int length, String... chunks) {\n" +
+			"\t\tint[] result = new int[length];\n" +
+			"\t\tint index = 0;\n" +
+			"\t\tfor (String chunk : chunks) {\n" +
+			"\t\t\tfor (int i = 0; i < chunk.length(); i += 2) {\n" +
+			"\t\t\t\tresult[index++] = (chunk.charAt(i) << 16) | chunk.charAt(i + 1);\n" +
+			"\t\t\t}\n" +
+			"\t\t}\n" +
+			"\t\treturn result;\n" +
+			"\t}\n";
+}
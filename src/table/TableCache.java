@@ -0,0 +1,195 @@
+package table;
+
+import logger.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 分析表缓存，缓存文件与文法文件放在同一目录下，文件名为 文法文件名.算法后缀.tbl
+ *
+ * 文件格式（大端序）：
+ *  头部    magic, version, algorithm, 文法内容的SHA-256（32字节），
+ *         终结符个数, 非终结符个数, 产生式个数, 行数, 开始状态, int区的字节偏移
+ *  符号表  终结符名称、非终结符名称（writeUTF）
+ *  int区  按4字节对齐，依次为
+ *         产生式头部[产生式个数], 产生式体长度[产生式个数], 产生式体（所有产生式的符号编码依次排列），
+ *         action[行数 * 终结符个数], goto[行数 * 非终结符个数]（LL(1)没有goto）
+ * 文法文件内容或算法不同时哈希不匹配，缓存失效。
+ */
+public class TableCache {
+	public static final int Magic = 0x50544231; // "PTB1"
+	public static final int Version = 1;
+	public static final int HashLength = 32;
+	// 头部中int区偏移所在的字节位置
+	static final int IntOffsetPosition = 4 * 3 + HashLength + 4 * 5;
+
+	/**
+	 * @return 文法文件内容的SHA-256
+	 * @throws IllegalStateException 文法文件无法读取
+	 */
+	public static byte[] hash(String cfgPath) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return digest.digest(Files.readAllBytes(new File(cfgPath).toPath()));
+		} catch (IOException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("can't hash " + cfgPath + ": " + e.getMessage(), e);
+		}
+	}
+
+	public static File cacheFile(String cfgPath, Algorithm algorithm) {
+		return new File(cfgPath + "." + algorithm.suffix + ".tbl");
+	}
+
+	/**
+	 * 读取缓存
+	 * @return 缓存存在且与文法内容、算法匹配时返回分析表，否则返回null
+	 */
+	public static TableImage load(String cfgPath, Algorithm algorithm) {
+		File file = cacheFile(cfgPath, algorithm);
+		if (!file.exists()) return null;
+
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			if (!matches(buffer, algorithm, hash(cfgPath))) return null;
+			return read(buffer);
+		} catch (IOException | RuntimeException e) {
+			// 文件损坏时当作没有缓存
+			Log.warning("table cache", file.getPath() + " is invalid: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * 读取缓存，缓存不存在或已失效时调用builder构造分析表并写入缓存
+	 */
+	public static TableImage loadOrBuild(String cfgPath, Algorithm algorithm, TableBuilder builder) {
+		TableImage image = load(cfgPath, algorithm);
+		if (image != null) return image;
+
+		image = builder.build(hash(cfgPath));
+		write(cfgPath, image);
+		return image;
+	}
+
+	public interface TableBuilder {
+		/**
+		 * @param grammarHash 文法内容的哈希，写入TableImage
+		 */
+		TableImage build(byte[] grammarHash);
+	}
+
+	/**
+	 * 检查头部的magic、版本、算法与文法哈希
+	 */
+	static boolean matches(ByteBuffer buffer, Algorithm algorithm, byte[] grammarHash) {
+		if (buffer.limit() < IntOffsetPosition + 4) return false;
+		if (buffer.getInt(0) != Magic || buffer.getInt(4) != Version) return false;
+		if (buffer.getInt(8) != algorithm.ordinal()) return false;
+
+		byte[] hash = new byte[HashLength];
+		for (int i = 0; i < HashLength; i++) hash[i] = buffer.get(12 + i);
+		return Arrays.equals(hash, grammarHash);
+	}
+
+	/**
+	 * 先写入同一目录下的临时文件，再原子地重命名为缓存文件，
+	 * 其他进程读取时只会看到旧文件或完整的新文件
+	 */
+	public static void write(String cfgPath, TableImage image) {
+		File file = cacheFile(cfgPath, image.getAlgorithm());
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+			Files.write(temp, toBytes(image));
+			Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// 写缓存失败不影响分析
+			Log.warning("table cache", "can't write " + file.getPath() + ": " + e.getMessage());
+			try {
+				if (temp != null) Files.deleteIfExists(temp);
+			} catch (IOException ignored) {
+				// 临时文件删除失败时忽略
+			}
+		}
+	}
+
+	static byte[] toBytes(TableImage image) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		int[][] bodies = image.getProductionBodies();
+		out.writeInt(Magic);
+		out.writeInt(Version);
+		out.writeInt(image.getAlgorithm().ordinal());
+		out.write(image.getGrammarHash());
+		out.writeInt(image.getTerminalCount());
+		out.writeInt(image.getNonTerminalCount());
+		out.writeInt(image.getProductionCount());
+		out.writeInt(image.getStateCount());
+		out.writeInt(image.getStartState());
+		out.writeInt(0); // int区偏移，最后回填
+
+		for (String terminal : image.getTerminals()) out.writeUTF(terminal);
+		for (String nonTerminal : image.getNonTerminals()) out.writeUTF(nonTerminal);
+		while (out.size() % 4 != 0) out.writeByte(0);
+		int intOffset = out.size();
+
+		for (int i = 0; i < bodies.length; i++) out.writeInt(image.getProductionHead(i));
+		for (int[] body : bodies) out.writeInt(body.length);
+		for (int[] body : bodies) {
+			for (int symbol : body) out.writeInt(symbol);
+		}
+		for (int value : image.getActionArray()) out.writeInt(value);
+		for (int value : image.getGotoArray()) out.writeInt(value);
+		out.flush();
+
+		byte[] result = bytes.toByteArray();
+		ByteBuffer.wrap(result).putInt(IntOffsetPosition, intOffset);
+		return result;
+	}
+
+	static TableImage read(ByteBuffer buffer) throws IOException {
+		Algorithm algorithm = Algorithm.values()[buffer.getInt(8)];
+		byte[] hash = new byte[HashLength];
+		for (int i = 0; i < HashLength; i++) hash[i] = buffer.get(12 + i);
+
+		int position = 12 + HashLength;
+		int terminalCount = buffer.getInt(position);
+		int nonTerminalCount = buffer.getInt(position + 4);
+		int productionCount = buffer.getInt(position + 8);
+		int rowCount = buffer.getInt(position + 12);
+		int startState = buffer.getInt(position + 16);
+		int intOffset = buffer.getInt(IntOffsetPosition);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				buffer.array(), IntOffsetPosition + 4, intOffset - IntOffsetPosition - 4));
+		String[] terminals = new String[terminalCount];
+		for (int i = 0; i < terminalCount; i++) terminals[i] = in.readUTF();
+		String[] nonTerminals = new String[nonTerminalCount];
+		for (int i = 0; i < nonTerminalCount; i++) nonTerminals[i] = in.readUTF();
+
+		buffer.position(intOffset);
+		int[] heads = new int[productionCount];
+		for (int i = 0; i < productionCount; i++) heads[i] = buffer.getInt();
+		int[][] bodies = new int[productionCount][];
+		for (int i = 0; i < productionCount; i++) bodies[i] = new int[buffer.getInt()];
+		for (int[] body : bodies) {
+			for (int pos = 0; pos < body.length; pos++) body[pos] = buffer.getInt();
+		}
+
+		int[] action = new int[rowCount * terminalCount];
+		for (int i = 0; i < action.length; i++) action[i] = buffer.getInt();
+		int[] gotos = new int[algorithm.isLR() ? rowCount * nonTerminalCount : 0];
+		for (int i = 0; i < gotos.length; i++) gotos[i] = buffer.getInt();
+
+		return new TableImage(algorithm, hash, terminals, nonTerminals, heads, bodies,
+				rowCount, startState, action, gotos);
+	}
+}
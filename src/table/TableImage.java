@@ -0,0 +1,194 @@
+package table;
+
+import cfg.SymbolTable;
+import cfg.production.CompactProduction;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 与文法对象无关的分析表，可以直接写入缓存文件或从缓存文件读出
+ *
+ * 包含符号表（终结符、非终结符名称，下标为编号）、产生式（头部与产生式体的符号编码）、
+ * 以及按行展开的一维分析表：
+ *  LR类算法：action为 [项集编号 * 终结符个数 + 终结符编号]，编码同ParseTable；
+ *           gotos为 [项集编号 * 非终结符个数 + 非终结符编号]，没有转换时为-1。
+ *  LL(1)：action为预测分析表 [非终结符编号 * 终结符个数 + 终结符编号]，值为产生式编号 + 1，0为错误；
+ *         gotos为空，startState为开始符号的非终结符编号。
+ */
+public class TableImage implements CompiledTable {
+	private final Algorithm algorithm;
+	private final byte[] grammarHash;
+
+	private final String[] terminals;
+	private final String[] nonTerminals;
+	// 终结符名称 -> 编号
+	private final Map<String, Integer> terminalIndex;
+
+	private final int[] productionHeads;
+	private final int[][] productionBodies;
+
+	private final int rowCount;
+	private final int startState;
+	private final int[] action;
+	private final int[] gotos;
+
+	public TableImage(Algorithm algorithm, byte[] grammarHash, String[] terminals, String[] nonTerminals,
+					  int[] productionHeads, int[][] productionBodies,
+					  int rowCount, int startState, int[] action, int[] gotos) {
+		this.algorithm = algorithm;
+		this.grammarHash = grammarHash;
+		this.terminals = terminals;
+		this.nonTerminals = nonTerminals;
+		this.terminalIndex = new HashMap<>();
+		for (int i = 0; i < terminals.length; i++) terminalIndex.put(terminals[i], i);
+		this.productionHeads = productionHeads;
+		this.productionBodies = productionBodies;
+		this.rowCount = rowCount;
+		this.startState = startState;
+		this.action = action;
+		this.gotos = gotos;
+	}
+
+	/**
+	 * 由LR类算法构造的分析表生成
+	 * @param productions 下标为产生式编号
+	 */
+	public static TableImage of(Algorithm algorithm, byte[] grammarHash, SymbolTable symbolTable,
+								List<CompactProduction> productions, LRTable table) {
+		int terminalCount = table.getTerminalCount();
+		int nonTerminalCount = table.getNonTerminalCount();
+		int stateCount = table.getStateCount();
+
+		int[] action = new int[stateCount * terminalCount];
+		int[] gotos = new int[stateCount * nonTerminalCount];
+		for (int state = 0; state < stateCount; state++) {
+			for (int t = 0; t < terminalCount; t++) action[state * terminalCount + t] = table.getAction(state, t);
+			for (int nt = 0; nt < nonTerminalCount; nt++) gotos[state * nonTerminalCount + nt] = table.getGoto(state, nt);
+		}
+
+		int[] heads = new int[productions.size()];
+		int[][] bodies = new int[productions.size()][];
+		for (int i = 0; i < bodies.length; i++) {
+			CompactProduction production = productions.get(i);
+			heads[i] = production.getHeadId();
+			bodies[i] = new int[production.length()];
+			for (int pos = 0; pos < production.length(); pos++) bodies[i][pos] = production.getSymbol(pos);
+		}
+
+		return new TableImage(algorithm, grammarHash,
+				terminalNames(symbolTable, terminalCount), nonTerminalNames(symbolTable, nonTerminalCount),
+				heads, bodies, stateCount, table.getStartState(), action, gotos);
+	}
+
+	static String[] terminalNames(SymbolTable symbolTable, int count) {
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) names[i] = symbolTable.getTerminal(i);
+		return names;
+	}
+
+	static String[] nonTerminalNames(SymbolTable symbolTable, int count) {
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) names[i] = symbolTable.getNonTerminal(i);
+		return names;
+	}
+
+	@Override
+	public int getPredict(int nonTerminal, int terminal) {
+		return action[nonTerminal * terminals.length + terminal] - 1;
+	}
+
+	/**
+	 * @return 产生式体的符号编码，不要修改返回值
+	 */
+	public int[] getProductionBody(int productionId) {
+		return productionBodies[productionId];
+	}
+
+	@Override
+	public int getProductionSymbol(int productionId, int pos) {
+		return productionBodies[productionId][pos];
+	}
+
+	@Override
+	public int getTerminalId(String terminal) {
+		return terminalIndex.getOrDefault(terminal, -1);
+	}
+
+	@Override
+	public int getAction(int state, int terminal) {
+		return action[state * terminals.length + terminal];
+	}
+
+	@Override
+	public int getGoto(int state, int nonTerminal) {
+		return gotos[state * nonTerminals.length + nonTerminal];
+	}
+
+	@Override
+	public int getProductionHead(int productionId) {
+		return productionHeads[productionId];
+	}
+
+	@Override
+	public int getProductionLength(int productionId) {
+		return productionBodies[productionId].length;
+	}
+
+	@Override
+	public int getProductionCount() {
+		return productionHeads.length;
+	}
+
+	@Override
+	public int getStateCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int getTerminalCount() {
+		return terminals.length;
+	}
+
+	@Override
+	public int getNonTerminalCount() {
+		return nonTerminals.length;
+	}
+
+	@Override
+	public int getStartState() {
+		return startState;
+	}
+
+	@Override
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public byte[] getGrammarHash() {
+		return grammarHash;
+	}
+
+	@Override
+	public String[] getTerminals() {
+		return terminals;
+	}
+
+	@Override
+	public String[] getNonTerminals() {
+		return nonTerminals;
+	}
+
+	int[] getActionArray() {
+		return action;
+	}
+
+	int[] getGotoArray() {
+		return gotos;
+	}
+
+	int[][] getProductionBodies() {
+		return productionBodies;
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ * 运行所有检查程序，任一检查失败时输出失败信息并以状态1退出
+ *
+ * 检查程序位于test目录，与src中的包对应，不依赖测试框架，每个检查都可以单独通过main运行。
+ * 需要在项目根目录下以JDK运行（ParserGeneratorCheck会编译生成的源代码），文法文件中的ε需以UTF-8读取：
+ *   java -Dfile.encoding=UTF-8 -cp <src的输出目录>:<test的输出目录> CheckAll
+ */
+public class CheckAll {
+	public static void main(String[] args) throws Exception {
+		try {
+			table.ParseTableCheck.main(args);
+			table.TableCacheCheck.main(args);
+			table.ParserGeneratorCheck.main(args);
+			lexer.LexerCheck.main(args);
+			slr.ItemCollectionCheck.main(args);
+			lr.ItemCollectionCheck.main(args);
+		} catch (AssertionError e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.out.println("All checks passed.");
+	}
+}
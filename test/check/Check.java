@@ -0,0 +1,28 @@
+package check;
+
+import java.util.Objects;
+
+/**
+ * 检查程序中的断言，不依赖测试框架
+ *
+ * 失败时抛出AssertionError，由CheckAll输出失败信息并以非0状态退出。
+ */
+public final class Check {
+	private Check() { }
+
+	public static void that(boolean condition, String message) {
+		if (!condition) throw new AssertionError(message);
+	}
+
+	public static void equal(Object expected, Object actual, String message) {
+		if (!Objects.equals(expected, actual)) {
+			throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+		}
+	}
+
+	public static void equal(int expected, int actual, String message) {
+		if (expected != actual) {
+			throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package check;
+
+import fin.Fin;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static check.Check.equal;
+
+/**
+ * 并行构造的结果与顺序构造的相同
+ *
+ * 对每个示例文法，先以pool为null顺序构造一次作为期望值，再并行构造Rounds次，
+ * 比较两者的签名；签名需包含编号与顺序，由各检查程序给出。
+ */
+public final class ParallelCheck {
+	private static final String InputDirectory = Fin.getInstance().getProjectPath() + "/src/data/input/";
+	private static final String[] Grammars = {"CFG_1.cfg", "CFG_2.cfg", "CFG_5.cfg", "CFG_6.cfg", "logic.cfg"};
+	// 线程调度不同时结果也必须相同，所以重复多次
+	private static final int Rounds = 20;
+	private static final int Parallelism = 8;
+
+	private ParallelCheck() { }
+
+	/**
+	 * @param generate 文法文件路径与线程池 -> 构造结果，线程池为null时顺序构造
+	 * @param signature 构造结果 -> 用于比较的字符串
+	 */
+	public static <T> void matchesSequential(BiFunction<String, ForkJoinPool, T> generate, Function<T, String> signature) {
+		ForkJoinPool pool = new ForkJoinPool(Parallelism);
+		try {
+			for (String grammar : Grammars) {
+				String expected = signature.apply(generate.apply(InputDirectory + grammar, null));
+				for (int round = 0; round < Rounds; round++) {
+					equal(expected, signature.apply(generate.apply(InputDirectory + grammar, pool)), grammar + " round " + round);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package lexer;
+
+import cfg.SymbolTable;
+import fin.BufferIO;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static check.Check.equal;
+
+/**
+ * DFA词法分析器按最长匹配识别，同时匹配时先添加的规则优先；缓冲区很小时结果不变
+ */
+public class LexerCheck {
+	private static final int If = 1;
+	private static final int Int = 2;
+	private static final int Identifier = 3;
+	private static final int Number = 4;
+	private static final int Equal = 5;
+	private static final int Assign = 6;
+
+	public static void main(String[] args) {
+		Lexer lexer = new LexerBuilder()
+				.addLiteral("if", If)
+				.addLiteral("int", Int)
+				.addPattern("[a-zA-Z_]\\w*", Identifier)
+				.addPattern("\\d+(\\.\\d+)?", Number)
+				.addLiteral("==", Equal)
+				.addLiteral("=", Assign)
+				.ignore("\\s+")
+				.ignore("//[^\\n]*")
+				.build();
+
+		String input = "if ifx int intx=3.14==42 // comment\n a_1 3. @x";
+		// 关键字优先于标识符，但更长的标识符优先于关键字；== 与 3.14 按最长匹配；3. 中的 . 无法识别
+		List<String> expected = Arrays.asList(
+				"1:if", "3:ifx", "2:int", "3:intx", "6:=", "4:3.14", "5:==", "4:42",
+				"3:a_1", "4:3", "-1:.", "-1:@", "3:x", "0:");
+		equal(expected, tokens(lexer, input, BufferIO.DefaultBufferSize), "tokens");
+
+		// 缓冲区很小时最长匹配的回退会跨越缓冲区边界，词素文本已被覆盖，只比较编号
+		List<Integer> ids = new ArrayList<>();
+		for (String token : expected) ids.add(Integer.parseInt(token.substring(0, token.indexOf(':'))));
+		for (int bufferSize : new int[]{3, 4, 5, 7}) {
+			equal(ids, ids(lexer, input, bufferSize), "buffer size " + bufferSize);
+		}
+
+		// 由终结符构造时 $ 识别为输入结束，之后的内容不再读取；patterns中的终结符按正则表达式匹配
+		String[] terminals = {SymbolTable.EndSymbol, "+", "(", ")", "number"};
+		Lexer grammarLexer = LexerBuilder.fromTerminals(terminals, Map.of("number", "[0-9]+")).build();
+		equal(Arrays.asList("2:(", "4:12", "1:+", "4:3", "3:)", "0:$"),
+				tokens(grammarLexer, "(12 + 3) $ + 4", BufferIO.DefaultBufferSize), "grammar lexer");
+
+		// 多个正则表达式同时匹配时编号小的终结符优先，与Map.of的遍历顺序无关
+		String[] overlapping = {SymbolTable.EndSymbol, "hex", "word"};
+		Lexer overlappingLexer = LexerBuilder.fromTerminals(overlapping,
+				Map.of("word", "[a-z0-9]+", "hex", "[0-9a-f]+")).build();
+		equal(Arrays.asList("1:beef", "2:cafe42z", "1:12", "0:"),
+				tokens(overlappingLexer, "beef cafe42z 12", BufferIO.DefaultBufferSize), "overlapping patterns");
+
+		System.out.println("LexerCheck: ok");
+	}
+
+	private static List<Integer> ids(Lexer lexer, String input, int bufferSize) {
+		BufferIO buffer = new BufferIO.Builder().setReader(new StringReader(input)).setBufferSize(bufferSize).build();
+		List<Integer> result = new ArrayList<>();
+		while (true) {
+			int token = lexer.nextToken(buffer);
+			result.add(token);
+			if (token == SymbolTable.END) return result;
+		}
+	}
+
+	/**
+	 * @return 每个词法单元为 "编号:文本"，到输入结束为止，END也记录一次
+	 */
+	private static List<String> tokens(Lexer lexer, String input, int bufferSize) {
+		BufferIO buffer = new BufferIO.Builder().setReader(new StringReader(input)).setBufferSize(bufferSize).build();
+		TokenStream stream = new TokenStream(lexer, buffer);
+		List<String> result = new ArrayList<>();
+		while (true) {
+			int token = stream.nextToken();
+			result.add(token + ":" + stream.getTokenText());
+			if (token == SymbolTable.END) return result;
+		}
+	}
+}
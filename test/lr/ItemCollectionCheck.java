@@ -0,0 +1,53 @@
+package lr;
+
+import algorithm.FirstSet;
+import algorithm.LeftCommonFactor;
+import algorithm.LeftRecursion;
+import cfg.CFG;
+import cfg.CFGBuilder;
+import check.ParallelCheck;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 并行生成的LR(1)项集族与顺序生成的相同，包括项集编号、项与lookahead、Goto表
+ */
+public class ItemCollectionCheck {
+	public static void main(String[] args) {
+		ParallelCheck.matchesSequential(ItemCollectionCheck::generate, ItemCollectionCheck::signature);
+		System.out.println("lr.ItemCollectionCheck: ok");
+	}
+
+	/**
+	 * 与LR的构造相同：First集在提取左公因子、消除左递归后的拷贝上求出
+	 */
+	private static ItemCollection generate(String cfgPath, ForkJoinPool pool) {
+		CFG cfg = new CFGBuilder(cfgPath).build();
+		CFG copyCfg = new LeftCommonFactor(cfg.copy()).extract();
+		copyCfg = new LeftRecursion(copyCfg).eliminate();
+
+		ItemCollection collection = new ItemCollection(cfg, new FirstSet(copyCfg));
+		if (pool == null) collection.generateItemCollection();
+		else collection.generateItemCollection(pool);
+		collection.resetId();
+		return collection;
+	}
+
+	/**
+	 * 按项集族的顺序输出每个项集的编号、项（核心与lookahead）与Goto表
+	 */
+	private static String signature(ItemCollection collection) {
+		StringBuilder builder = new StringBuilder();
+		for (ItemSet itemSet : collection.getLrItemSets()) {
+			builder.append(itemSet.getId()).append(':');
+			for (Item item : itemSet.getLrItems()) {
+				builder.append(' ').append(Long.toHexString(item.getCore())).append(item.getLookheads());
+			}
+			for (var entry : itemSet.getGotoTables().entrySet()) {
+				builder.append(' ').append(entry.getKey()).append("->").append(entry.getValue().getId());
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
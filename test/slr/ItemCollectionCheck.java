@@ -0,0 +1,47 @@
+package slr;
+
+import cfg.CFGBuilder;
+import check.ParallelCheck;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 并行生成的LR(0)项集族与顺序生成的相同，包括项集编号、项的顺序与Goto表
+ */
+public class ItemCollectionCheck {
+	public static void main(String[] args) {
+		ParallelCheck.matchesSequential(ItemCollectionCheck::generate, ItemCollectionCheck::signature);
+		System.out.println("slr.ItemCollectionCheck: ok");
+	}
+
+	private static ItemCollection generate(String cfgPath, ForkJoinPool pool) {
+		// 项集族会向文法中加入增广的开始符号，每次使用新的文法
+		ItemCollection collection = new ItemCollection(new CFGBuilder(cfgPath).build());
+		if (pool == null) collection.generateItemCollection();
+		else collection.generateItemCollection(pool);
+		collection.resetId();
+		return collection;
+	}
+
+	/**
+	 * 按项集族的顺序输出每个项集的编号、内核项、非内核项与Goto表
+	 */
+	private static String signature(ItemCollection collection) {
+		StringBuilder builder = new StringBuilder();
+		for (ItemSet itemSet : collection.getLrItemSets()) {
+			builder.append(itemSet.getId()).append(':');
+			for (Item item : itemSet.getLrKernelItems()) append(builder, item);
+			builder.append('|');
+			for (Item item : itemSet.getLrNonKernelItems()) append(builder, item);
+			for (var entry : itemSet.getGotoTables().entrySet()) {
+				builder.append(' ').append(entry.getKey()).append("->").append(entry.getValue().getId());
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static void append(StringBuilder builder, Item item) {
+		builder.append(' ').append(item.getProductionId()).append('.').append(item.getPointPos());
+	}
+}
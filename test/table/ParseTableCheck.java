@@ -0,0 +1,166 @@
+package table;
+
+import cfg.CFG;
+import cfg.CFGBuilder;
+import fin.Fin;
+import lalr.LALR;
+import lexer.TokenStream;
+import lr.LR;
+import parser.CompiledGrammar;
+import parser.Parser;
+import slr.SLR;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static check.Check.equal;
+import static check.Check.that;
+
+/**
+ * SLR、LR(1)、LALR(1)分析表对示例输入的分析结果一致，压缩表与稠密表一致
+ */
+public class ParseTableCheck {
+	static final String InputDirectory = Fin.getInstance().getProjectPath() + "/src/data/input/";
+
+	/**
+	 * 示例文法与输入，输入后为是否应当被接受
+	 */
+	static final Object[][] Samples = {
+			{"CFG_1.cfg", Collections.emptyMap(), new Object[]{
+					"( 1 2  + 2 2 ) * 3 3 $", true,
+					"(1+2)*3.5/4-6", true,
+					"((7))", true,
+					"1+", false,
+					"1..2", false}},
+			{"CFG_2.cfg", Collections.emptyMap(), new Object[]{
+					"12+(3*45)/6", true,
+					"(((0)))", true,
+					"1+*2", false,
+					"", false}},
+			{"CFG_4.cfg", Map.of("number", "[0-9]+"), new Object[]{
+					"(12+3)*45-6/7 $", true,
+					"12 34", false,
+					"((1)", false}},
+			{"CFG_6.cfg", Collections.emptyMap(), new Object[]{
+					"id+id*(id+id)", true,
+					"(id)*id", true,
+					"id id", false,
+					"id+", false}},
+			{"CFG_7.cfg", Collections.emptyMap(), new Object[]{
+					"c c d d", true,
+					"cccdd", true,
+					"c d", false}},
+			{"logic.cfg", Collections.emptyMap(), new Object[]{
+					"{ if ( 1 < 2 ) { 3 ; } while ( 4 <= 5 ) do 6 ; while ( 7 ) ; }", true,
+					"{ 1 = 2 + 3 * ( 4 ) ; }", true,
+					"{ }", true,
+					"{ 1 < ; }", false,
+					"{ if ( 1 ) }", false}},
+	};
+
+	public static void main(String[] args) {
+		for (Object[] sample : Samples) {
+			String grammar = (String) sample[0];
+			@SuppressWarnings("unchecked")
+			Map<String, String> patterns = (Map<String, String>) sample[1];
+			Object[] inputs = (Object[]) sample[2];
+
+			CFG cfg = new CFGBuilder(InputDirectory + grammar).build();
+			checkAgreement(grammar, cfg, patterns, inputs);
+			checkCompressed(grammar, cfg);
+		}
+		System.out.println("ParseTableCheck: " + Samples.length + " grammars ok");
+	}
+
+	/**
+	 * 三种算法对每个输入给出相同的结果与相同的归约序列
+	 */
+	private static void checkAgreement(String grammar, CFG cfg, Map<String, String> patterns, Object[] inputs) {
+		Algorithm[] algorithms = {Algorithm.SLR, Algorithm.LR1, Algorithm.LALR};
+		CompiledGrammar[] compiled = new CompiledGrammar[algorithms.length];
+		for (int i = 0; i < algorithms.length; i++) compiled[i] = CompiledGrammar.compile(cfg, algorithms[i], patterns);
+
+		for (int k = 0; k < inputs.length; k += 2) {
+			String input = (String) inputs[k];
+			boolean expected = (Boolean) inputs[k + 1];
+
+			List<String> first = null;
+			for (int i = 0; i < algorithms.length; i++) {
+				CompiledTable table = compiled[i].getTable();
+				List<String> reduces = new ArrayList<>();
+				Parser parser = compiled[i].newParser();
+				boolean accept = parser.parse(TokenStream.of(compiled[i].getLexer(), input),
+						(productionId, head, length) -> reduces.add(productionString(table, productionId)));
+
+				String where = grammar + " " + algorithms[i] + " \"" + input + "\"";
+				equal(expected, accept, where);
+				if (!accept) continue;
+				if (first == null) first = reduces;
+				else equal(first, reduces, where + " reduces");
+			}
+		}
+	}
+
+	private static String productionString(CompiledTable table, int productionId) {
+		StringBuilder builder = new StringBuilder(table.getNonTerminals()[table.getProductionHead(productionId)]).append(" ->");
+		for (int pos = 0; pos < table.getProductionLength(productionId); pos++) {
+			int symbol = table.getProductionSymbol(productionId, pos);
+			builder.append(' ').append(symbol >= 0 ? table.getTerminals()[symbol] : table.getNonTerminals()[~symbol]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 稠密表中的非错误单元格在压缩表中不变；错误单元格在压缩表中为错误，或为该行已有的默认归约
+	 */
+	private static void checkCompressed(String grammar, CFG cfg) {
+		SLR slr = new SLR(cfg, null, false);
+		slr.construct();
+		checkCompressed(grammar + " SLR", slr.getParseTable(), slr.compress());
+
+		LR lr = new LR(cfg, null, false);
+		lr.construct();
+		checkCompressed(grammar + " LR1", lr.getParseTable(), lr.compress());
+
+		LALR lalr = new LALR(cfg);
+		lalr.construct();
+		checkCompressed(grammar + " LALR", lalr.getParseTable(), lalr.compress());
+	}
+
+	private static void checkCompressed(String where, ParseTable dense, CompressedParseTable compressed) {
+		equal(dense.getStateCount(), compressed.getStateCount(), where + " states");
+		equal(dense.getStartState(), compressed.getStartState(), where + " start state");
+		equal(dense.getProductionCount(), compressed.getProductionCount(), where + " productions");
+		for (int p = 0; p < dense.getProductionCount(); p++) {
+			equal(dense.getProductionHead(p), compressed.getProductionHead(p), where + " head of " + p);
+			equal(dense.getProductionLength(p), compressed.getProductionLength(p), where + " length of " + p);
+		}
+
+		for (int state = 0; state < dense.getStateCount(); state++) {
+			for (int t = 0; t < dense.getTerminalCount(); t++) {
+				int expected = dense.getAction(state, t);
+				int actual = compressed.getAction(state, t);
+				String cell = where + " action[" + state + ", " + t + "]";
+				if (expected != ParseTable.ERROR) {
+					equal(expected, actual, cell);
+				} else if (actual != ParseTable.ERROR) {
+					that(ParseTable.getType(actual) == ParseTable.REDUCE && rowContains(dense, state, actual),
+							cell + " is " + actual + ", not a default reduce");
+				}
+			}
+			for (int nt = 0; nt < dense.getNonTerminalCount(); nt++) {
+				int expected = dense.getGoto(state, nt);
+				if (expected >= 0) equal(expected, compressed.getGoto(state, nt), where + " goto[" + state + ", " + nt + "]");
+			}
+		}
+	}
+
+	private static boolean rowContains(ParseTable table, int state, int action) {
+		for (int t = 0; t < table.getTerminalCount(); t++) {
+			if (table.getAction(state, t) == action) return true;
+		}
+		return false;
+	}
+}
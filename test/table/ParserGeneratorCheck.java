@@ -0,0 +1,160 @@
+package table;
+
+import lexer.Lexer;
+import lexer.LexerBuilder;
+import lexer.TokenStream;
+import parser.LRDriver;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static check.Check.equal;
+import static check.Check.that;
+
+/**
+ * ParserGenerator生成的分析器能够编译，解码得到的分析表与TableImage相同，
+ * 对ParseTableCheck的示例输入与LRDriver给出相同的结果、归约序列与出错的词法单元；
+ * 另用一个较大的文法覆盖分析表超过ChunkSize、分多段字符串存储的情况
+ */
+public class ParserGeneratorCheck {
+	private static final Algorithm[] Algorithms = {Algorithm.SLR, Algorithm.LR1, Algorithm.LALR};
+	private static final int Keywords = 60;
+
+	public static void main(String[] args) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		that(compiler != null, "no system Java compiler, run the checks with a JDK");
+
+		// 缓存与生成的源代码都写在临时目录，不在src下留下文件
+		Path directory = Files.createTempDirectory("parser-generator-check");
+		try {
+			List<Object[]> samples = new ArrayList<>();
+			for (Object[] sample : ParseTableCheck.Samples) {
+				Path cfgPath = directory.resolve((String) sample[0]);
+				Files.copy(new File(ParseTableCheck.InputDirectory + sample[0]).toPath(), cfgPath, StandardCopyOption.REPLACE_EXISTING);
+				samples.add(new Object[]{cfgPath, sample[1], sample[2]});
+			}
+			samples.add(largeSample(directory));
+
+			// 所有生成的类一次编译
+			List<String> files = new ArrayList<>(Arrays.asList("-d", directory.toString()));
+			List<Object[]> parsers = new ArrayList<>();
+			int largest = 0;
+			for (Object[] sample : samples) {
+				Path cfgPath = (Path) sample[0];
+				for (Algorithm algorithm : Algorithms) {
+					TableImage image = TableCacheCheck.build(cfgPath.toString(), algorithm);
+					largest = Math.max(largest, image.getActionArray().length);
+
+					String className = "Generated" + parsers.size();
+					Path source = directory.resolve(className + ".java");
+					Files.write(source, new ParserGenerator(image).generate(null, className).getBytes(StandardCharsets.US_ASCII));
+					files.add(source.toString());
+					parsers.add(new Object[]{cfgPath.getFileName() + " " + algorithm, className, image, sample[1], sample[2]});
+				}
+			}
+			that(largest > ParserGenerator.ChunkSize, "no table larger than " + ParserGenerator.ChunkSize + " ints");
+
+			ByteArrayOutputStream errors = new ByteArrayOutputStream();
+			int status = compiler.run(null, null, errors, files.toArray(new String[0]));
+			equal(0, status, "javac: " + errors.toString());
+
+			try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()})) {
+				for (Object[] parser : parsers) {
+					@SuppressWarnings("unchecked")
+					Map<String, String> patterns = (Map<String, String>) parser[3];
+					check((String) parser[0], loader.loadClass((String) parser[1]), (TableImage) parser[2], patterns, (Object[]) parser[4]);
+				}
+			}
+			System.out.println("ParserGeneratorCheck: " + parsers.size() + " parsers ok");
+		} finally {
+			File[] files = directory.toFile().listFiles();
+			if (files != null) for (File file : files) file.delete();
+			directory.toFile().delete();
+		}
+	}
+
+	/**
+	 * 语句以Keywords个不同的关键字开头，LR(1)分析表的Action部分超过ChunkSize
+	 */
+	private static Object[] largeSample(Path directory) throws IOException {
+		StringBuilder grammar = new StringBuilder("S -> S ; stmt | stmt\nstmt -> ");
+		for (int k = 0; k < Keywords; k++) {
+			if (k > 0) grammar.append(" | ");
+			grammar.append('k').append(k).append(" ( E )");
+		}
+		grammar.append("\nE -> E + id | id");
+
+		Path cfgPath = directory.resolve("keywords.cfg");
+		Files.write(cfgPath, grammar.toString().getBytes(StandardCharsets.UTF_8));
+		return new Object[]{cfgPath, Collections.emptyMap(), new Object[]{
+				"k0 ( id + id ) ; k" + (Keywords - 1) + " ( id ) ; k30 ( id + id + id )", true,
+				"k1 ( id ) k2 ( id )", false,
+				"k" + Keywords + " ( id )", false}};
+	}
+
+	private static void check(String where, Class<?> generated, TableImage image, Map<String, String> patterns, Object[] inputs) throws Exception {
+		equal(Arrays.asList(image.getTerminals()), Arrays.asList((String[]) generated.getField("TERMINALS").get(null)), where + " terminals");
+		equal(Arrays.asList(image.getNonTerminals()), Arrays.asList((String[]) generated.getField("NON_TERMINALS").get(null)), where + " non-terminals");
+		that(Arrays.equals(image.getActionArray(), table(generated, "ACTION")), where + " action table");
+		that(Arrays.equals(image.getGotoArray(), table(generated, "GOTO")), where + " goto table");
+
+		Lexer lexer = LexerBuilder.fromTerminals(image.getTerminals(), patterns).build();
+		Class<?> sourceType = generated.getClassLoader().loadClass(generated.getName() + "$TokenSource");
+		Class<?> callbackType = generated.getClassLoader().loadClass(generated.getName() + "$ReduceCallback");
+		Method parse = generated.getMethod("parse", sourceType, callbackType);
+		Method getErrorToken = generated.getMethod("getErrorToken");
+		Object parser = generated.getConstructor().newInstance();
+		LRDriver driver = new LRDriver(image);
+
+		for (int k = 0; k < inputs.length; k += 2) {
+			String input = (String) inputs[k];
+			String at = where + " \"" + input + "\"";
+
+			List<Integer> expected = new ArrayList<>();
+			boolean expectedAccept = driver.parse(TokenStream.of(lexer, input),
+					(productionId, head, length) -> expected.add(productionId));
+			equal(inputs[k + 1], expectedAccept, at + " LRDriver");
+
+			List<Integer> actual = new ArrayList<>();
+			TokenStream stream = TokenStream.of(lexer, input);
+			Object source = Proxy.newProxyInstance(generated.getClassLoader(), new Class<?>[]{sourceType},
+					(proxy, method, arguments) -> stream.nextToken());
+			Object callback = Proxy.newProxyInstance(generated.getClassLoader(), new Class<?>[]{callbackType},
+					(proxy, method, arguments) -> {
+						actual.add((Integer) arguments[0]);
+						return null;
+					});
+			boolean accept = (Boolean) parse.invoke(parser, source, callback);
+
+			equal(expectedAccept, accept, at);
+			equal(expected, actual, at + " reduces");
+			if (!accept) equal(driver.getErrorToken(), (int) (Integer) getErrorToken.invoke(parser), at + " error token");
+		}
+	}
+
+	/**
+	 * 读取生成类中解码后的私有分析表
+	 */
+	private static int[] table(Class<?> generated, String name) throws ReflectiveOperationException {
+		Field field = generated.getDeclaredField(name);
+		field.setAccessible(true);
+		return (int[]) field.get(null);
+	}
+}
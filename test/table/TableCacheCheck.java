@@ -0,0 +1,136 @@
+package table;
+
+import algorithm.FirstSet;
+import algorithm.FollowSet;
+import algorithm.LeftCommonFactor;
+import algorithm.LeftRecursion;
+import algorithm.SelectSet;
+import cfg.CFG;
+import cfg.CFGBuilder;
+import fin.Fin;
+import lalr.LALR;
+import ll.LLOne;
+import lr.LR;
+import slr.SLR;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static check.Check.equal;
+import static check.Check.that;
+
+/**
+ * 分析表写入缓存后读出（TableCache.load与MappedParseTable.open）得到相同的分析表，
+ * 文法内容改变或文件损坏时缓存失效
+ */
+public class TableCacheCheck {
+	private static final String InputDirectory = Fin.getInstance().getProjectPath() + "/src/data/input/";
+
+	public static void main(String[] args) throws IOException {
+		// 缓存文件写在文法文件旁边，把文法复制到临时目录，不在src下留下缓存文件
+		Path directory = Files.createTempDirectory("table-cache-check");
+		try {
+			for (String grammar : new String[]{"CFG_1.cfg", "CFG_6.cfg", "logic.cfg"}) {
+				Path cfgPath = directory.resolve(grammar);
+				Files.copy(new File(InputDirectory + grammar).toPath(), cfgPath, StandardCopyOption.REPLACE_EXISTING);
+				for (Algorithm algorithm : Algorithm.values()) check(cfgPath.toString(), algorithm);
+			}
+		} finally {
+			File[] files = directory.toFile().listFiles();
+			if (files != null) for (File file : files) file.delete();
+			directory.toFile().delete();
+		}
+		System.out.println("TableCacheCheck: ok");
+	}
+
+	private static void check(String cfgPath, Algorithm algorithm) throws IOException {
+		String where = new File(cfgPath).getName() + " " + algorithm;
+		TableImage image = build(cfgPath, algorithm);
+
+		// 内存中的序列化与反序列化
+		TableImage decoded = TableCache.read(ByteBuffer.wrap(TableCache.toBytes(image)));
+		checkEqual(where + " decoded", image, decoded);
+
+		// 写入文件后读出与映射
+		TableCache.write(cfgPath, image);
+		checkEqual(where + " loaded", image, TableCache.load(cfgPath, algorithm));
+		checkEqual(where + " mapped", image, MappedParseTable.open(cfgPath, algorithm));
+
+		File cacheFile = TableCache.cacheFile(cfgPath, algorithm);
+		File[] siblings = cacheFile.getParentFile().listFiles((dir, name) -> name.endsWith(".tmp"));
+		equal(0, siblings == null ? 0 : siblings.length, where + " temp files left");
+
+		// 文件损坏时当作没有缓存，load会输出一条警告
+		byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+		Files.write(cacheFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		that(TableCache.load(cfgPath, algorithm) == null, where + " truncated cache is used");
+
+		// 文法内容改变后缓存失效
+		TableCache.write(cfgPath, image);
+		byte[] grammar = Files.readAllBytes(new File(cfgPath).toPath());
+		byte[] changed = Arrays.copyOf(grammar, grammar.length + 1);
+		changed[grammar.length] = '\n';
+		Files.write(new File(cfgPath).toPath(), changed);
+		that(TableCache.load(cfgPath, algorithm) == null, where + " stale cache is used");
+		that(MappedParseTable.open(cfgPath, algorithm) == null, where + " stale cache is mapped");
+		Files.write(new File(cfgPath).toPath(), grammar);
+	}
+
+	static TableImage build(String cfgPath, Algorithm algorithm) {
+		byte[] hash = TableCache.hash(cfgPath);
+		switch (algorithm) {
+			case SLR:
+				SLR slr = new SLR(new CFGBuilder(cfgPath).build(), null, false);
+				slr.construct();
+				return slr.toTableImage(hash);
+			case LR1:
+				LR lr = new LR(new CFGBuilder(cfgPath).build(), null, false);
+				lr.construct();
+				return lr.toTableImage(hash);
+			case LALR:
+				LALR lalr = new LALR(new CFGBuilder(cfgPath).build());
+				lalr.construct();
+				return lalr.toTableImage(hash);
+			default:
+				CFG cfg = new CFGBuilder(cfgPath).build();
+				cfg = new LeftCommonFactor(cfg).extract();
+				cfg = new LeftRecursion(cfg).eliminate();
+				FirstSet firstSet = new FirstSet(cfg);
+				FollowSet followSet = new FollowSet(cfg, firstSet);
+				return new LLOne(cfg, new SelectSet(cfg, firstSet, followSet)).toTableImage(hash);
+		}
+	}
+
+	private static void checkEqual(String where, TableImage expected, CompiledTable actual) {
+		that(actual != null, where + " is null");
+		equal(expected.getAlgorithm(), actual.getAlgorithm(), where + " algorithm");
+		equal(Arrays.asList(expected.getTerminals()), Arrays.asList(actual.getTerminals()), where + " terminals");
+		equal(Arrays.asList(expected.getNonTerminals()), Arrays.asList(actual.getNonTerminals()), where + " non-terminals");
+		equal(expected.getStateCount(), actual.getStateCount(), where + " rows");
+		equal(expected.getStartState(), actual.getStartState(), where + " start state");
+
+		equal(expected.getProductionCount(), actual.getProductionCount(), where + " productions");
+		for (int p = 0; p < expected.getProductionCount(); p++) {
+			equal(expected.getProductionHead(p), actual.getProductionHead(p), where + " head of " + p);
+			equal(expected.getProductionLength(p), actual.getProductionLength(p), where + " length of " + p);
+			for (int pos = 0; pos < expected.getProductionLength(p); pos++) {
+				equal(expected.getProductionSymbol(p, pos), actual.getProductionSymbol(p, pos), where + " body of " + p);
+			}
+		}
+
+		for (int row = 0; row < expected.getStateCount(); row++) {
+			for (int t = 0; t < expected.getTerminalCount(); t++) {
+				equal(expected.getAction(row, t), actual.getAction(row, t), where + " action[" + row + ", " + t + "]");
+			}
+			if (!expected.getAlgorithm().isLR()) continue;
+			for (int nt = 0; nt < expected.getNonTerminalCount(); nt++) {
+				equal(expected.getGoto(row, nt), actual.getGoto(row, nt), where + " goto[" + row + ", " + nt + "]");
+			}
+		}
+	}
+}